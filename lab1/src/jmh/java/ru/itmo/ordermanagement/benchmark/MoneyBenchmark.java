@@ -0,0 +1,82 @@
+package ru.itmo.ordermanagement.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.itmo.ordermanagement.model.entity.Order;
+import ru.itmo.ordermanagement.model.entity.OrderItem;
+import ru.itmo.ordermanagement.model.value.Money;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order total in kopecks ({@link Order#recalculateTotal}) against the {@link BigDecimal} stream it
+ * replaced, for orders of {@code items} random items. Run with {@code -Djmh.args="-prof gc"} for the
+ * allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int items;
+
+    private Order order;
+    private List<DecimalItem> decimalItems;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        order = new Order();
+        decimalItems = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            long kopecks = 100 + random.nextInt(500_000);
+            int quantity = 1 + random.nextInt(5);
+            order.addItem(OrderItem.builder()
+                    .productName("product-" + i)
+                    .quantity(quantity)
+                    .price(Money.ofKopecks(kopecks))
+                    .build());
+            decimalItems.add(new DecimalItem(BigDecimal.valueOf(kopecks, 2), quantity));
+        }
+        order.recalculateTotal();
+        if (!order.getTotalPrice().toDecimal().equals(bigDecimalTotal())) {
+            throw new IllegalStateException("Totals differ: " + order.getTotalPrice() + " and " + bigDecimalTotal());
+        }
+    }
+
+    @Benchmark
+    public Money recalculateTotal() {
+        order.recalculateTotal();
+        return order.getTotalPrice();
+    }
+
+    /**
+     * {@code Order.recalculateTotal} before prices became {@link Money}.
+     */
+    @Benchmark
+    public BigDecimal bigDecimalTotal() {
+        return decimalItems.stream()
+                .map(i -> i.price().multiply(BigDecimal.valueOf(i.quantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private record DecimalItem(BigDecimal price, int quantity) {
+    }
+}
@@ -0,0 +1,143 @@
+package ru.itmo.ordermanagement.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.itmo.ordermanagement.dto.OrderItemResponse;
+import ru.itmo.ordermanagement.dto.OrderResponse;
+import ru.itmo.ordermanagement.model.enums.OrderStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writing and reading a {@code List<OrderResponse>} of {@code orders} orders with three items each in
+ * the encodings the API offers, with the mapper settings of the application. The payload size, plain
+ * and gzipped, is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final TypeReference<List<OrderResponse>> ORDER_LIST = new TypeReference<>() {
+    };
+
+    private static final String[] PRODUCTS = {"Пицца Маргарита", "Ролл Филадельфия", "Салат Цезарь",
+            "Борщ", "Лимонад", "Чизкейк", "Паста Карбонара", "Суп Том Ям"};
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private String format;
+
+    @Param({"100", "1000"})
+    private int orders;
+
+    private ObjectMapper mapper;
+    private List<OrderResponse> list;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "SMILE" -> new SmileFactory();
+            case "CBOR" -> new CBORFactory();
+            default -> null;
+        };
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (factory != null) {
+            builder.factory(factory);
+        }
+        mapper = builder.build();
+        list = orders(orders);
+        encoded = mapper.writeValueAsBytes(list);
+        if (!mapper.readValue(encoded, ORDER_LIST).equals(list)) {
+            throw new IllegalStateException(format + " does not read back what it wrote");
+        }
+
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(encoded);
+        }
+        System.out.printf("%n%s, %d orders: %d bytes, %d gzipped%n", format, orders, encoded.length, gzipped.size());
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return mapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public List<OrderResponse> read() throws IOException {
+        return mapper.readValue(encoded, ORDER_LIST);
+    }
+
+    private static List<OrderResponse> orders(int count) {
+        Random random = new Random(1);
+        OrderStatus[] statuses = OrderStatus.values();
+        LocalDateTime start = LocalDateTime.of(2026, 10, 1, 9, 0);
+        List<OrderResponse> result = new ArrayList<>();
+        long itemId = 1;
+        for (long id = 1; id <= count; id++) {
+            List<OrderItemResponse> items = new ArrayList<>();
+            BigDecimal total = BigDecimal.ZERO;
+            for (int i = 0; i < 3; i++) {
+                BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(200_000), 2);
+                int quantity = 1 + random.nextInt(3);
+                items.add(OrderItemResponse.builder()
+                        .id(itemId++)
+                        .productName(PRODUCTS[random.nextInt(PRODUCTS.length)])
+                        .quantity(quantity)
+                        .price(price)
+                        .build());
+                total = total.add(price.multiply(BigDecimal.valueOf(quantity)));
+            }
+            OrderStatus status = statuses[random.nextInt(statuses.length)];
+            long customerId = 1 + random.nextInt(50);
+            long sellerId = 1 + random.nextInt(10);
+            Long courierId = random.nextBoolean() ? 1L + random.nextInt(20) : null;
+            LocalDateTime createdAt = start.plusSeconds(id * 97);
+            result.add(OrderResponse.builder()
+                    .id(id)
+                    .customerId(customerId)
+                    .customerName("Покупатель " + customerId)
+                    .sellerId(sellerId)
+                    .sellerName("Продавец " + sellerId)
+                    .courierId(courierId)
+                    .courierName(courierId != null ? "Курьер " + courierId : null)
+                    .status(status)
+                    .totalPrice(total)
+                    .items(items)
+                    .createdAt(createdAt)
+                    .updatedAt(createdAt.plusMinutes(random.nextInt(90)))
+                    .cancelReason(status == OrderStatus.CANCELLED ? "Продавец не может выполнить заказ" : null)
+                    .build());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,77 @@
+package ru.itmo.ordermanagement.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends connections of {@code @Transactional(readOnly = true)} transactions to the replica,
+ * everything else to the primary. Must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, otherwise the
+ * transaction manager asks for a connection before the read-only flag is bound. A read-only
+ * transaction that must see the primary calls {@link #pinTransactionToPrimary()} before its first
+ * statement.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final Object PRIMARY_PIN = new Object();
+
+    private final ReplicaLagGuard lagGuard;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+
+    public ReadWriteRoutingDataSource(ReplicaLagGuard lagGuard, MeterRegistry meterRegistry) {
+        this.lagGuard = lagGuard;
+        this.primaryRoutes = meterRegistry.counter("datasource.routing", "route", "primary");
+        this.replicaRoutes = meterRegistry.counter("datasource.routing", "route", "replica");
+    }
+
+    /**
+     * Sends the current read-only transaction to the primary, without counting it as a write of the
+     * caller. Has no effect once the transaction has run a statement, and none without a replica.
+     */
+    public static void pinTransactionToPrimary() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(PRIMARY_PIN)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(PRIMARY_PIN, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(PRIMARY_PIN);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(PRIMARY_PIN, Boolean.TRUE);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PRIMARY_PIN);
+            }
+        });
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (readOnly && !lagGuard.isPinnedToPrimary() && !TransactionSynchronizationManager.hasResource(PRIMARY_PIN)) {
+            replicaRoutes.increment();
+            return Route.REPLICA;
+        }
+        if (!readOnly && TransactionSynchronizationManager.isActualTransactionActive()) {
+            lagGuard.markWrite();
+        }
+        primaryRoutes.increment();
+        return Route.PRIMARY;
+    }
+}
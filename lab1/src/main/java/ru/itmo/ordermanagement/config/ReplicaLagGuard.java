@@ -0,0 +1,60 @@
+package ru.itmo.ordermanagement.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Remembers which callers wrote recently, so that their follow-up reads stay on the primary
+ * until the replica has had time to catch up.
+ */
+public class ReplicaLagGuard {
+
+    private static final ThreadLocal<Caller> CURRENT = new ThreadLocal<>();
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReplicaLagGuard(Duration window, long maxCallers) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maxCallers)
+                .build();
+    }
+
+    public void enter(String callerKey) {
+        CURRENT.set(new Caller(callerKey));
+    }
+
+    public void exit() {
+        Caller caller = CURRENT.get();
+        CURRENT.remove();
+        if (caller != null && caller.wrote) {
+            recentWriters.put(caller.key, Boolean.TRUE);
+        }
+    }
+
+    public void markWrite() {
+        Caller caller = CURRENT.get();
+        if (caller != null) {
+            caller.wrote = true;
+        }
+    }
+
+    public boolean isPinnedToPrimary() {
+        Caller caller = CURRENT.get();
+        if (caller == null) {
+            return false;
+        }
+        return caller.wrote || recentWriters.getIfPresent(caller.key) != null;
+    }
+
+    private static final class Caller {
+        private final String key;
+        private boolean wrote;
+
+        private Caller(String key) {
+            this.key = key;
+        }
+    }
+}
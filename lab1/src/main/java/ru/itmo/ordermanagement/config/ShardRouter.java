@@ -0,0 +1,196 @@
+package ru.itmo.ordermanagement.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Decides which database shard serves the current unit of work.
+ * <p>
+ * Orders, their items and notifications live on shard {@code seller_id mod N}; every shard hands out
+ * ids from its own range of {@code app.sharding.id-range}, so an order or notification id alone
+ * names its shard. Customers, sellers and couriers are owned by the home shard (0) and copied to the
+ * others. The shard is kept in a thread-local that {@link ShardRoutingDataSource} reads when a
+ * transaction takes its first connection, so {@link #bind} has to come before the first statement.
+ * With sharding off there is a single shard and binding does nothing.
+ */
+@Component
+public class ShardRouter {
+
+    public static final int HOME_SHARD = 0;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int shardCount;
+    private final long idRange;
+    private final TransactionTemplate readOnlyTemplate;
+    private final TransactionTemplate writeTemplate;
+
+    public ShardRouter(PlatformTransactionManager transactionManager,
+                       @Value("${app.sharding.enabled:false}") boolean enabled,
+                       @Value("${app.sharding.urls:}") String[] urls,
+                       @Value("${app.sharding.id-range:1000000000000}") long idRange) {
+        if (enabled && urls.length == 0) {
+            throw new IllegalArgumentException("app.sharding.urls must list at least one database");
+        }
+        this.shardCount = enabled ? urls.length : 1;
+        this.idRange = idRange;
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    static int currentShard() {
+        Integer shard = CURRENT.get();
+        return shard != null ? shard : HOME_SHARD;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public boolean isOnHomeShard() {
+        return currentShard() == HOME_SHARD;
+    }
+
+    public int shardOfSeller(long sellerId) {
+        return Math.floorMod(sellerId, shardCount);
+    }
+
+    /**
+     * Shard whose id range holds {@code id}; ids past the last range map to the last shard, where
+     * they are simply not found.
+     */
+    public int shardOfId(long id) {
+        if (shardCount == 1 || id <= 0) {
+            return HOME_SHARD;
+        }
+        return (int) Math.min((id - 1) / idRange, shardCount - 1);
+    }
+
+    public void bindSeller(Long sellerId) {
+        bind(shardOfSeller(sellerId));
+    }
+
+    public void bindId(Long id) {
+        bind(shardOfId(id));
+    }
+
+    /**
+     * Routes the current transaction to {@code shard} until it completes.
+     *
+     * @throws IllegalStateException if the transaction is already bound to another shard
+     */
+    public void bind(int shard) {
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("Shard must be between 0 and " + (shardCount - 1) + ": " + shard);
+        }
+        if (shardCount == 1) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("A shard can only be bound inside a transaction");
+        }
+        Integer bound = (Integer) TransactionSynchronizationManager.getResource(this);
+        if (bound != null) {
+            if (bound != shard) {
+                throw new IllegalStateException(
+                        String.format("Transaction is bound to shard %d, cannot switch to %d", bound, shard));
+            }
+            return;
+        }
+        Integer previous = CURRENT.get();
+        TransactionSynchronizationManager.bindResource(this, shard);
+        CURRENT.set(shard);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(ShardRouter.this);
+                restore(previous);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(ShardRouter.this, shard);
+                CURRENT.set(shard);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ShardRouter.this);
+                restore(previous);
+            }
+        });
+    }
+
+    /**
+     * Runs {@code work} in a new transaction on {@code shard}.
+     */
+    public <T> T inTransaction(int shard, boolean readOnly, Supplier<T> work) {
+        return (readOnly ? readOnlyTemplate : writeTemplate).execute(status -> {
+            bind(shard);
+            return work.get();
+        });
+    }
+
+    /**
+     * Runs the read-only {@code query} on every shard, one after another, and concatenates the results.
+     * Only for lookups that cannot be narrowed to one seller.
+     */
+    public <T> List<T> queryAllShards(Supplier<List<T>> query) {
+        if (shardCount == 1) {
+            return inTransaction(HOME_SHARD, true, query);
+        }
+        List<T> results = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            results.addAll(inTransaction(shard, true, query));
+        }
+        return results;
+    }
+
+    /**
+     * Runs {@code work} once per shard, see {@link #onShard}.
+     */
+    public void forEachShard(IntConsumer work) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            onShard(shard, () -> work.accept(current));
+        }
+    }
+
+    /**
+     * Runs {@code work} with {@code shard} as the default for every transaction and statement it starts.
+     */
+    public void onShard(int shard, Runnable work) {
+        if (shardCount == 1) {
+            work.run();
+            return;
+        }
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            work.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    private static void restore(Integer previous) {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ru.itmo.ordermanagement.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One connection pool per database in {@code app.sharding.urls} behind a {@link ShardRoutingDataSource}.
+ * On startup each shard's id sequences for the sharded tables are moved into the shard's id range, and
+ * the {@code order_items} partition for the shard's next order id is created, since the ones
+ * {@code schema.sql} made are for the sequence position before the move.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+@Slf4j
+public class ShardRoutingConfig {
+
+    private static final List<String> SHARDED_SEQUENCES =
+            List.of("orders_id_seq", "order_items_id_seq", "notifications_id_seq");
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${app.sharding.urls}") String[] urls,
+            @Value("${app.sharding.id-range:1000000000000}") long idRange,
+            @Value("${app.sharding.maximum-pool-size:10}") int maximumPoolSize) {
+        List<HikariDataSource> shards = new ArrayList<>();
+        for (int shard = 0; shard < urls.length; shard++) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.getDriverClassName())
+                    .url(urls[shard].trim())
+                    .username(properties.getUsername())
+                    .password(properties.getPassword())
+                    .build();
+            dataSource.setPoolName("shard-" + shard);
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            shards.add(dataSource);
+            reserveIdRange(new JdbcTemplate(dataSource), shard, idRange);
+        }
+        return new ShardRoutingDataSource(shards, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    private static void reserveIdRange(JdbcTemplate jdbcTemplate, int shard, long idRange) {
+        long first = shard * idRange + 1;
+        long last = (shard + 1) * idRange;
+        for (String sequence : SHARDED_SEQUENCES) {
+            Long current = jdbcTemplate.queryForObject("select last_value from " + sequence, Long.class);
+            if (current == null || current < first) {
+                jdbcTemplate.queryForObject("select setval(?::regclass, ?, false)", Long.class, sequence, first);
+                log.info("Shard {}: {} moved to the shard's id range starting at {}", shard, sequence, first);
+            } else if (current > last) {
+                throw new IllegalStateException(String.format(
+                        "Shard %d: %d in %s is past the shard's id range ending at %d", shard, current, sequence, last));
+            }
+        }
+        jdbcTemplate.queryForList("select create_order_items_partitions(0)", String.class);
+    }
+}
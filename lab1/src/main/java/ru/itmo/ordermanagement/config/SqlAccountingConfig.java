@@ -0,0 +1,111 @@
+package ru.itmo.ordermanagement.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.support.ScheduledTaskObservationContext;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.itmo.ordermanagement.controller.NotificationController;
+import ru.itmo.ordermanagement.controller.OrderController;
+
+import javax.sql.DataSource;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request and per-scheduler-run SQL accounting, a low-overhead replacement for reading
+ * {@code show-sql} output to spot N+1 queries.
+ * <p>
+ * {@code app.sql-accounting.enabled} is read when the beans are set up rather than through a bean
+ * condition, which Spring AOT would fix at build time in the {@code fast-start} artifact.
+ */
+@Configuration
+@Slf4j
+public class SqlAccountingConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int statementBudget;
+
+    public SqlAccountingConfig(MeterRegistry meterRegistry,
+                               @Value("${app.sql-accounting.enabled:true}") boolean enabled,
+                               @Value("${app.sql-accounting.statement-budget:10}") int statementBudget) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.statementBudget = statementBudget;
+    }
+
+    /**
+     * Counts at the {@code dataSource} bean, which every configuration (single database, replica,
+     * shards) names that way, so that SQL from {@code JdbcTemplate} is seen as well as Hibernate's.
+     */
+    @Bean
+    public static BeanPostProcessor sqlAccountingDataSourceWrapper(
+            @Value("${app.sql-accounting.enabled:true}") boolean enabled) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return enabled && "dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        ? new SqlAccountingDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        registry.addInterceptor(new SqlAccountingInterceptor(meterRegistry,
+                        Set.of(OrderController.class, NotificationController.class), statementBudget))
+                .addPathPatterns("/api/**");
+    }
+
+    /**
+     * Accounts every {@code @Scheduled} run as {@code sql.scheduled.statements} /
+     * {@code sql.scheduled.time}, tagged with the task's class and method.
+     */
+    @Bean
+    public ObservationHandler<ScheduledTaskObservationContext> sqlAccountingScheduledTaskHandler() {
+        return new ObservationHandler<>() {
+            @Override
+            public void onStart(ScheduledTaskObservationContext context) {
+                context.put(SqlStatementStats.class, SqlStatementStats.begin());
+            }
+
+            @Override
+            public void onStop(ScheduledTaskObservationContext context) {
+                SqlStatementStats.suspend();
+                SqlStatementStats stats = context.get(SqlStatementStats.class);
+                if (stats == null) {
+                    return;
+                }
+                String task = context.getTargetClass().getSimpleName() + "." + context.getMethod().getName();
+                DistributionSummary.builder("sql.scheduled.statements")
+                        .tag("task", task)
+                        .register(meterRegistry)
+                        .record(stats.getStatements());
+                Timer.builder("sql.scheduled.time")
+                        .tag("task", task)
+                        .register(meterRegistry)
+                        .record(stats.getNanos(), TimeUnit.NANOSECONDS);
+                log.debug("Scheduled {} executed {} SQL statements in {} ms",
+                        task, stats.getStatements(), TimeUnit.NANOSECONDS.toMillis(stats.getNanos()));
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return enabled && context instanceof ScheduledTaskObservationContext;
+            }
+        };
+    }
+}
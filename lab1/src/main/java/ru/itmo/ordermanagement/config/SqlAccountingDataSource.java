@@ -0,0 +1,75 @@
+package ru.itmo.ordermanagement.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Wraps the application's {@link DataSource} and adds every statement executed through it to the
+ * thread's {@link SqlStatementStats}: Hibernate's and {@code JdbcTemplate}'s alike. A JDBC batch counts
+ * as one statement. Outside of an accounted unit of work it does not even read the clock.
+ */
+public class SqlAccountingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    private static final Set<String> EXECUTIONS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    public SqlAccountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return accounted(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return accounted(super.getConnection(username, password));
+    }
+
+    private static Connection accounted(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(SqlAccountingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return STATEMENT_FACTORIES.contains(method.getName())
+                            ? accounted(result, method.getReturnType())
+                            : result;
+                });
+    }
+
+    /**
+     * {@code type} is the statement interface the factory method declares, so that callers can still
+     * cast to {@code PreparedStatement} or {@code CallableStatement}.
+     */
+    private static Object accounted(Object statement, Class<?> type) {
+        return Proxy.newProxyInstance(SqlAccountingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, (proxy, method, args) -> {
+                    if (!EXECUTIONS.contains(method.getName()) || !SqlStatementStats.isActive()) {
+                        return invoke(statement, method, args);
+                    }
+                    long started = System.nanoTime();
+                    try {
+                        return invoke(statement, method, args);
+                    } finally {
+                        SqlStatementStats.record(1, System.nanoTime() - started);
+                    }
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
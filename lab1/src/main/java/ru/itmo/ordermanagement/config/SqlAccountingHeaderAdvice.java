@@ -0,0 +1,48 @@
+package ru.itmo.ordermanagement.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Locale;
+
+/**
+ * With {@code app.sql-accounting.debug-header} on, reports the SQL executed for the request in
+ * {@code X-Sql-Statements} and {@code X-Sql-Time-Ms}. The headers are added right before the body
+ * is written, which is after all of the request's database work.
+ */
+@RestControllerAdvice
+public class SqlAccountingHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    static final String TIME_HEADER = "X-Sql-Time-Ms";
+
+    private final boolean enabled;
+
+    public SqlAccountingHeaderAdvice(@Value("${app.sql-accounting.enabled:true}") boolean accountingEnabled,
+                                     @Value("${app.sql-accounting.debug-header:false}") boolean debugHeader) {
+        this.enabled = accountingEnabled && debugHeader;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return enabled;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlStatementStats stats = SqlStatementStats.current();
+        if (stats != null) {
+            response.getHeaders().set(STATEMENTS_HEADER, Integer.toString(stats.getStatements()));
+            response.getHeaders().set(TIME_HEADER, String.format(Locale.ROOT, "%.3f", stats.getNanos() / 1e6));
+        }
+        return body;
+    }
+}
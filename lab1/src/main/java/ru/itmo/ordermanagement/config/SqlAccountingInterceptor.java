@@ -0,0 +1,87 @@
+package ru.itmo.ordermanagement.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accounts the SQL executed while handling each API request: records it per endpoint as
+ * {@code sql.request.statements} / {@code sql.request.time} and warns when an endpoint of one of
+ * the budgeted controllers goes over {@code app.sql-accounting.statement-budget} statements.
+ * <p>
+ * Async requests keep their {@link SqlStatementStats} in a request attribute between dispatches;
+ * work done for them on other threads is not counted.
+ */
+@Slf4j
+public class SqlAccountingInterceptor implements AsyncHandlerInterceptor {
+
+    static final String STATS_ATTRIBUTE = SqlAccountingInterceptor.class.getName() + ".stats";
+
+    private final MeterRegistry meterRegistry;
+    private final Set<Class<?>> budgetedControllers;
+    private final int statementBudget;
+
+    public SqlAccountingInterceptor(MeterRegistry meterRegistry, Set<Class<?>> budgetedControllers,
+                                    int statementBudget) {
+        this.meterRegistry = meterRegistry;
+        this.budgetedControllers = budgetedControllers;
+        this.statementBudget = statementBudget;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStatementStats stats = (SqlStatementStats) request.getAttribute(STATS_ATTRIBUTE);
+        if (stats == null) {
+            request.setAttribute(STATS_ATTRIBUTE, SqlStatementStats.begin());
+        } else {
+            stats.resume();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        SqlStatementStats.suspend();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        SqlStatementStats.suspend();
+        SqlStatementStats stats = (SqlStatementStats) request.getAttribute(STATS_ATTRIBUTE);
+        if (stats == null) {
+            return;
+        }
+        request.removeAttribute(STATS_ATTRIBUTE);
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+        DistributionSummary.builder("sql.request.statements")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        Timer.builder("sql.request.time")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(stats.getNanos(), TimeUnit.NANOSECONDS);
+
+        if (stats.getStatements() > statementBudget
+                && handler instanceof HandlerMethod handlerMethod
+                && budgetedControllers.contains(handlerMethod.getBeanType())) {
+            meterRegistry.counter("sql.request.over-budget", "method", method, "uri", uri).increment();
+            log.warn("{} {} executed {} SQL statements in {} ms, budget is {}", method, request.getRequestURI(),
+                    stats.getStatements(), TimeUnit.NANOSECONDS.toMillis(stats.getNanos()), statementBudget);
+        }
+    }
+}
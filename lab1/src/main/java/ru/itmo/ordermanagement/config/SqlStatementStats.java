@@ -0,0 +1,52 @@
+package ru.itmo.ordermanagement.config;
+
+/**
+ * SQL statements executed and time spent in them on behalf of one unit of work (an HTTP request
+ * or a scheduler run). The unit is bound to the current thread between {@link #begin()} /
+ * {@link #resume()} and {@link #suspend()}; {@link SqlAccountingDataSource} adds to it.
+ */
+public final class SqlStatementStats {
+
+    private static final ThreadLocal<SqlStatementStats> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long nanos;
+
+    public static SqlStatementStats begin() {
+        SqlStatementStats stats = new SqlStatementStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static SqlStatementStats current() {
+        return CURRENT.get();
+    }
+
+    public static void suspend() {
+        CURRENT.remove();
+    }
+
+    static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    static void record(int count, long elapsedNanos) {
+        SqlStatementStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.statements += count;
+            stats.nanos += elapsedNanos;
+        }
+    }
+
+    public void resume() {
+        CURRENT.set(this);
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+}
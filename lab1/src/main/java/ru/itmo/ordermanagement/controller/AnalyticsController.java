@@ -0,0 +1,32 @@
+package ru.itmo.ordermanagement.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.itmo.ordermanagement.dto.StageLatencyResponse;
+import ru.itmo.ordermanagement.model.enums.OrderStage;
+import ru.itmo.ordermanagement.service.StageLatencyAnalytics;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+@Tag(name = "Analytics", description = "Аналитика по заказам")
+public class AnalyticsController {
+
+    private final StageLatencyAnalytics stageLatencyAnalytics;
+
+    @GetMapping("/stage-latency")
+    @Operation(summary = "Длительность этапов заказа",
+            description = "Перцентили длительности этапов (REVIEW, COOKING, COURIER_ASSIGNMENT, COURIER_ARRIVAL) " +
+                    "за скользящее окно, в миллисекундах. Без sellerId — по всем продавцам.")
+    public ResponseEntity<List<StageLatencyResponse>> getStageLatency(
+            @RequestParam(required = false) Long sellerId,
+            @RequestParam(required = false) OrderStage stage,
+            @RequestParam(defaultValue = "50,90,95,99") List<Double> percentiles) {
+        return ResponseEntity.ok(stageLatencyAnalytics.query(sellerId, stage, percentiles));
+    }
+}
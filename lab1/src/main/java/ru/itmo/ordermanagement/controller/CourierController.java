@@ -8,9 +8,11 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.itmo.ordermanagement.dto.CreateCourierRequest;
+import ru.itmo.ordermanagement.dto.UpdateLocationRequest;
 import ru.itmo.ordermanagement.exception.ResourceNotFoundException;
 import ru.itmo.ordermanagement.model.entity.Courier;
 import ru.itmo.ordermanagement.repository.CourierRepository;
+import ru.itmo.ordermanagement.service.CourierService;
 
 import java.util.List;
 
@@ -21,16 +23,33 @@ import java.util.List;
 public class CourierController {
 
     private final CourierRepository courierRepository;
+    private final CourierService courierService;
 
     @PostMapping
     @Operation(summary = "Создать курьера")
     public ResponseEntity<Courier> create(@Valid @RequestBody CreateCourierRequest request) {
-        Courier courier = Courier.builder()
-                .name(request.getName())
-                .phone(request.getPhone())
-                .available(true)
-                .build();
-        return ResponseEntity.status(HttpStatus.CREATED).body(courierRepository.save(courier));
+        return ResponseEntity.status(HttpStatus.CREATED).body(courierService.createCourier(request));
+    }
+
+    @PutMapping("/{id}/location")
+    @Operation(summary = "Обновить координаты курьера")
+    public ResponseEntity<Courier> updateLocation(@PathVariable Long id,
+                                                  @Valid @RequestBody UpdateLocationRequest request) {
+        return ResponseEntity.ok(courierService.updateLocation(id, request));
+    }
+
+    @PostMapping("/{id}/online")
+    @Operation(summary = "Курьер выходит на линию",
+            description = "Курьер становится доступным для назначения на заказы.")
+    public ResponseEntity<Courier> goOnline(@PathVariable Long id) {
+        return ResponseEntity.ok(courierService.goOnline(id));
+    }
+
+    @PostMapping("/{id}/offline")
+    @Operation(summary = "Курьер уходит с линии",
+            description = "Курьер перестаёт получать новые заказы.")
+    public ResponseEntity<Courier> goOffline(@PathVariable Long id) {
+        return ResponseEntity.ok(courierService.goOffline(id));
     }
 
     @GetMapping
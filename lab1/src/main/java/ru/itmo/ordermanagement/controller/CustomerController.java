@@ -11,6 +11,7 @@ import ru.itmo.ordermanagement.dto.CreateCustomerRequest;
 import ru.itmo.ordermanagement.exception.ResourceNotFoundException;
 import ru.itmo.ordermanagement.model.entity.Customer;
 import ru.itmo.ordermanagement.repository.CustomerRepository;
+import ru.itmo.ordermanagement.service.ReferenceDataReplicator;
 
 import java.util.List;
 
@@ -21,6 +22,7 @@ import java.util.List;
 public class CustomerController {
 
     private final CustomerRepository customerRepository;
+    private final ReferenceDataReplicator referenceDataReplicator;
 
     @PostMapping
     @Operation(summary = "Создать заказчика")
@@ -30,7 +32,9 @@ public class CustomerController {
                 .email(request.getEmail())
                 .phone(request.getPhone())
                 .build();
-        return ResponseEntity.status(HttpStatus.CREATED).body(customerRepository.save(customer));
+        customer = customerRepository.save(customer);
+        referenceDataReplicator.replicateCustomer(customer.getId());
+        return ResponseEntity.status(HttpStatus.CREATED).body(customer);
     }
 
     @GetMapping
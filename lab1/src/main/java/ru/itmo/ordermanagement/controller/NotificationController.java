@@ -10,6 +10,7 @@ import ru.itmo.ordermanagement.model.enums.RecipientType;
 import ru.itmo.ordermanagement.service.NotificationService;
 
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/notifications")
@@ -21,19 +22,21 @@ public class NotificationController {
 
     @GetMapping("/{recipientType}/{recipientId}")
     @Operation(summary = "Получить все уведомления получателя",
-            description = "recipientType: CUSTOMER, SELLER, COURIER")
+            description = "recipientType: CUSTOMER, SELLER, COURIER. Язык текста — по заголовку Accept-Language (ru, en).")
     public ResponseEntity<List<NotificationResponse>> getNotifications(
             @PathVariable RecipientType recipientType,
-            @PathVariable Long recipientId) {
-        return ResponseEntity.ok(notificationService.getNotifications(recipientType, recipientId));
+            @PathVariable Long recipientId,
+            Locale locale) {
+        return ResponseEntity.ok(notificationService.getNotifications(recipientType, recipientId, locale));
     }
 
     @GetMapping("/{recipientType}/{recipientId}/unread")
     @Operation(summary = "Получить непрочитанные уведомления получателя")
     public ResponseEntity<List<NotificationResponse>> getUnreadNotifications(
             @PathVariable RecipientType recipientType,
-            @PathVariable Long recipientId) {
-        return ResponseEntity.ok(notificationService.getUnreadNotifications(recipientType, recipientId));
+            @PathVariable Long recipientId,
+            Locale locale) {
+        return ResponseEntity.ok(notificationService.getUnreadNotifications(recipientType, recipientId, locale));
     }
 
     @PostMapping("/{notificationId}/read")
@@ -7,11 +7,16 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import ru.itmo.ordermanagement.dto.*;
 import ru.itmo.ordermanagement.model.enums.OrderStatus;
+import ru.itmo.ordermanagement.service.OrderChangeFeed;
+import ru.itmo.ordermanagement.service.OrderGroupCommit;
+import ru.itmo.ordermanagement.service.OrderIdempotency;
 import ru.itmo.ordermanagement.service.OrderService;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -19,14 +24,32 @@ import java.util.List;
 @Tag(name = "Orders", description = "Управление заказами (BPMN бизнес-процесс)")
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final OrderService orderService;
+    private final OrderIdempotency orderIdempotency;
+    private final OrderChangeFeed orderChangeFeed;
+    private final OrderGroupCommit orderGroupCommit;
 
     @PostMapping
     @Operation(summary = "Создать заказ",
-            description = "BPMN: Заказчик → 'Создать заказ'. Товары собраны в корзине → заказ создаётся, продавец уведомляется.")
-    public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody CreateOrderRequest request) {
-        OrderResponse order = orderService.createOrder(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(order);
+            description = "BPMN: Заказчик → 'Создать заказ'. Товары собраны в корзине → заказ создаётся, продавец уведомляется. " +
+                    "С заголовком Idempotency-Key повтор запроса возвращает уже созданный заказ " +
+                    "(Idempotent-Replayed: true), тот же ключ с другим телом — 422.")
+    public CompletableFuture<ResponseEntity<OrderResponse>> createOrder(
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody CreateOrderRequest request) {
+        if (idempotencyKey == null) {
+            CompletableFuture<OrderResponse> order = orderGroupCommit.isEnabled()
+                    ? orderGroupCommit.submit(request)
+                    : CompletableFuture.completedFuture(orderService.createOrder(request));
+            return order.thenApply(created -> ResponseEntity.status(HttpStatus.CREATED).body(created));
+        }
+        OrderIdempotency.Result result = orderIdempotency.createOrder(idempotencyKey, request);
+        return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.CREATED)
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(result.order()));
     }
 
     @GetMapping("/customer/{customerId}")
@@ -59,6 +82,28 @@ public class OrderController {
         return ResponseEntity.ok(orderService.searchCourier(orderId));
     }
 
+    @PostMapping("/bulk/review")
+    @Operation(summary = "Проверить несколько заказов",
+            description = "Решение продавца сразу по списку заказов. Для каждого заказа возвращается, " +
+                    "применён ли переход или заказ уже в другом статусе.")
+    public ResponseEntity<BulkOrderResponse> bulkReviewOrders(@Valid @RequestBody BulkReviewRequest request) {
+        return ResponseEntity.ok(orderService.bulkReviewOrders(request));
+    }
+
+    @PostMapping("/bulk/assemble")
+    @Operation(summary = "Собрать несколько заказов",
+            description = "Переход COOKING → ASSEMBLING для списка заказов.")
+    public ResponseEntity<BulkOrderResponse> bulkAssembleOrders(@Valid @RequestBody BulkOrderRequest request) {
+        return ResponseEntity.ok(orderService.bulkAssembleOrders(request));
+    }
+
+    @PostMapping("/bulk/search-courier")
+    @Operation(summary = "Искать курьеров для нескольких заказов",
+            description = "Переход ASSEMBLING → SEARCHING_COURIER для списка заказов, затем назначение курьеров.")
+    public ResponseEntity<BulkOrderResponse> bulkSearchCourier(@Valid @RequestBody BulkOrderRequest request) {
+        return ResponseEntity.ok(orderService.bulkSearchCourier(request));
+    }
+
     @GetMapping("/seller/{sellerId}")
     @Operation(summary = "Получить заказы продавца")
     public ResponseEntity<List<OrderResponse>> getOrdersBySeller(@PathVariable Long sellerId) {
@@ -90,6 +135,19 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getOrdersByCourier(courierId));
     }
 
+    @GetMapping("/changes")
+    @Operation(summary = "Лента изменений заказов",
+            description = "Заказы, изменённые после курсора since, в порядке изменения. " +
+                    "Следующий запрос передаёт nextCursor. waitMs > 0 — ждать изменений (long-poll). " +
+                    "При шардировании у каждого шарда своя лента и свой курсор (параметр shard).")
+    public DeferredResult<OrderChangesResponse> getOrderChanges(
+            @RequestParam(defaultValue = "0") int shard,
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "0") long waitMs) {
+        return orderChangeFeed.poll(shard, since, limit, waitMs);
+    }
+
     @GetMapping("/{orderId}")
     @Operation(summary = "Получить заказ по ID")
     public ResponseEntity<OrderResponse> getOrder(@PathVariable Long orderId) {
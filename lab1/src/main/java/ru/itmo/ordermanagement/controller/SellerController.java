@@ -7,10 +7,16 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import ru.itmo.ordermanagement.dto.CreateSellerRequest;
+import ru.itmo.ordermanagement.dto.SellerBoardResponse;
+import ru.itmo.ordermanagement.dto.TopProductsResponse;
 import ru.itmo.ordermanagement.exception.ResourceNotFoundException;
 import ru.itmo.ordermanagement.model.entity.Seller;
 import ru.itmo.ordermanagement.repository.SellerRepository;
+import ru.itmo.ordermanagement.service.ProductHeavyHitters;
+import ru.itmo.ordermanagement.service.ReferenceDataReplicator;
+import ru.itmo.ordermanagement.service.SellerOrderBoard;
 
 import java.util.List;
 
@@ -21,6 +27,9 @@ import java.util.List;
 public class SellerController {
 
     private final SellerRepository sellerRepository;
+    private final ProductHeavyHitters productHeavyHitters;
+    private final ReferenceDataReplicator referenceDataReplicator;
+    private final SellerOrderBoard sellerOrderBoard;
 
     @PostMapping
     @Operation(summary = "Создать продавца")
@@ -28,8 +37,12 @@ public class SellerController {
         Seller seller = Seller.builder()
                 .name(request.getName())
                 .address(request.getAddress())
+                .latitude(request.getLatitude())
+                .longitude(request.getLongitude())
                 .build();
-        return ResponseEntity.status(HttpStatus.CREATED).body(sellerRepository.save(seller));
+        seller = sellerRepository.save(seller);
+        referenceDataReplicator.replicateSeller(seller.getId());
+        return ResponseEntity.status(HttpStatus.CREATED).body(seller);
     }
 
     @GetMapping
@@ -44,4 +57,26 @@ public class SellerController {
         return ResponseEntity.ok(sellerRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Seller not found: " + id)));
     }
+
+    @GetMapping("/{id}/top-products")
+    @Operation(summary = "Популярные товары продавца",
+            description = "Приблизительный топ товаров по количеству за скользящее окно. " +
+                    "Истинное количество лежит в пределах quantity ± error.")
+    public ResponseEntity<TopProductsResponse> getTopProducts(@PathVariable Long id,
+                                                              @RequestParam(defaultValue = "10") int limit) {
+        if (!sellerRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Seller not found: " + id);
+        }
+        return ResponseEntity.ok(productHeavyHitters.topProducts(id, Math.max(1, limit)));
+    }
+
+    @GetMapping("/{id}/board")
+    @Operation(summary = "Доска заказов продавца",
+            description = "Заказы, ожидающие решения продавца (pendingOrderIds), и заказы в работе (activeOrders). " +
+                    "Запрос передаёт version из предыдущего ответа; waitMs > 0 — ждать изменения доски (long-poll).")
+    public DeferredResult<SellerBoardResponse> getBoard(@PathVariable Long id,
+                                                        @RequestParam(defaultValue = "0") long version,
+                                                        @RequestParam(defaultValue = "0") long waitMs) {
+        return sellerOrderBoard.poll(id, version, waitMs);
+    }
 }
@@ -0,0 +1,16 @@
+package ru.itmo.ordermanagement.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkOrderRequest {
+
+    @NotEmpty(message = "At least one order ID is required")
+    @Size(max = 500, message = "At most 500 orders per request")
+    private List<@NotNull Long> orderIds;
+}
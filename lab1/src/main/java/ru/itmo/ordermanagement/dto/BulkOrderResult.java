@@ -0,0 +1,18 @@
+package ru.itmo.ordermanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.itmo.ordermanagement.model.enums.OrderStatus;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderResult {
+    private Long orderId;
+    private boolean applied;
+    private OrderStatus status;
+    private String message;
+}
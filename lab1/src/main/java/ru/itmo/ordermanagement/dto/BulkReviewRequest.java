@@ -0,0 +1,13 @@
+package ru.itmo.ordermanagement.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class BulkReviewRequest extends BulkOrderRequest {
+
+    private boolean canFulfill;
+
+    private String cancelReason;
+}
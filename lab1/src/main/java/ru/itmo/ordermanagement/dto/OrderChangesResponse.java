@@ -0,0 +1,18 @@
+package ru.itmo.ordermanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderChangesResponse {
+    private List<OrderResponse> orders;
+    private Long nextCursor;
+    private boolean hasMore;
+}
@@ -1,5 +1,7 @@
 package ru.itmo.ordermanagement.dto;
 
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -18,6 +20,7 @@ public class OrderItemDto {
     private Integer quantity;
 
     @NotNull(message = "Price is required")
-    @Min(value = 0, message = "Price must be non-negative")
+    @DecimalMin(value = "0", message = "Price must be non-negative")
+    @Digits(integer = 10, fraction = 2, message = "Price must have at most 10 integer digits and 2 decimals")
     private BigDecimal price;
 }
@@ -1,7 +1,9 @@
 package ru.itmo.ordermanagement.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import ru.itmo.ordermanagement.model.enums.OrderStatus;
 
 import java.math.BigDecimal;
@@ -10,6 +12,8 @@ import java.util.List;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class OrderResponse {
     private Long id;
     private Long customerId;
@@ -0,0 +1,16 @@
+package ru.itmo.ordermanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.itmo.ordermanagement.model.enums.OrderStatus;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SellerBoardOrder {
+    private Long orderId;
+    private OrderStatus status;
+}
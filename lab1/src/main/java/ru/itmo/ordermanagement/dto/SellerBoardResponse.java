@@ -0,0 +1,19 @@
+package ru.itmo.ordermanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SellerBoardResponse {
+    private Long sellerId;
+    private long version;
+    private List<Long> pendingOrderIds;
+    private List<SellerBoardOrder> activeOrders;
+}
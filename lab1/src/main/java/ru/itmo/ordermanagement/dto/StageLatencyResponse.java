@@ -0,0 +1,24 @@
+package ru.itmo.ordermanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.itmo.ordermanagement.model.enums.OrderStage;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StageLatencyResponse {
+    private OrderStage stage;
+    private Long sellerId;
+    private long windowMinutes;
+    private long count;
+    private long minMs;
+    private long maxMs;
+    private double meanMs;
+    private Map<String, Long> percentilesMs;
+}
@@ -0,0 +1,321 @@
+package ru.itmo.ordermanagement.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.itmo.ordermanagement.model.entity.Order;
+import ru.itmo.ordermanagement.model.enums.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process bus for committed order transitions, built on a preallocated ring of
+ * {@link OrderStatusChanged} slots ({@code app.event-bus.ring-size}, a power of two).
+ * <p>
+ * Publishers claim a sequence with a single atomic increment, fill the slot and mark it published
+ * for the current lap. Each {@link OrderEventConsumer} runs on its own thread with its own
+ * sequence and handles every run of published slots as one batch. A publisher only waits when the
+ * ring is full, i.e. when the slowest consumer is a whole ring behind. Idle consumers wait
+ * according to {@code app.event-bus.wait-strategy}.
+ */
+@Component
+@Slf4j
+public class OrderEventBus implements SmartLifecycle {
+
+    public enum WaitStrategy {
+        /** Park on a condition signalled by publishers; lowest CPU use. */
+        BLOCKING,
+        /** Spin, then yield, then park for 100 µs. */
+        SLEEPING,
+        /** Spin, then yield. */
+        YIELDING,
+        /** Spin only; lowest latency, one busy core per consumer. */
+        BUSY_SPIN
+    }
+
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long BLOCKING_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ObjectProvider<OrderEventConsumer> consumerProvider;
+    private final MeterRegistry meterRegistry;
+    private final WaitStrategy waitStrategy;
+    private final OrderStatusChanged[] slots;
+    private final AtomicIntegerArray publishedLaps;
+    private final int mask;
+    private final int lapShift;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final Counter publishedEvents;
+    private final Counter droppedEvents;
+    private final Counter producerWaits;
+    private volatile List<Worker> workers = List.of();
+    private volatile boolean running;
+
+    public OrderEventBus(ObjectProvider<OrderEventConsumer> consumerProvider,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.event-bus.ring-size:4096}") int ringSize,
+                         @Value("${app.event-bus.wait-strategy:SLEEPING}") WaitStrategy waitStrategy) {
+        if (ringSize < 2 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("app.event-bus.ring-size must be a power of two: " + ringSize);
+        }
+        this.consumerProvider = consumerProvider;
+        this.meterRegistry = meterRegistry;
+        this.waitStrategy = waitStrategy;
+        this.slots = new OrderStatusChanged[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            slots[i] = new OrderStatusChanged();
+        }
+        this.publishedLaps = new AtomicIntegerArray(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            publishedLaps.set(i, -1);
+        }
+        this.mask = ringSize - 1;
+        this.lapShift = Integer.numberOfTrailingZeros(ringSize);
+        this.publishedEvents = meterRegistry.counter("event.bus.published");
+        this.droppedEvents = meterRegistry.counter("event.bus.dropped");
+        this.producerWaits = meterRegistry.counter("event.bus.producer.waits");
+        Gauge.builder("event.bus.depth", this, OrderEventBus::depth).register(meterRegistry);
+    }
+
+    /**
+     * Publishes the order's current state once the surrounding transaction commits, or right away
+     * when there is no transaction.
+     */
+    public void publishAfterCommit(Order order) {
+        long orderId = order.getId();
+        long sellerId = order.getSeller().getId();
+        long customerId = order.getCustomer().getId();
+        long courierId = order.getCourier() != null ? order.getCourier().getId() : 0;
+        OrderStatus status = order.getStatus();
+        long version = order.getVersion() != null ? order.getVersion() : 0;
+        LocalDateTime stageStartedAt = order.stageStartedAt();
+        long stageStartedAtMillis = stageStartedAt != null
+                ? stageStartedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(orderId, sellerId, customerId, courierId, status, version, stageStartedAtMillis);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(orderId, sellerId, customerId, courierId, status, version, stageStartedAtMillis);
+            }
+        });
+    }
+
+    public void publish(long orderId, long sellerId, long customerId, long courierId,
+                        OrderStatus status, long version, long stageStartedAtMillis) {
+        if (!running) {
+            droppedEvents.increment();
+            log.warn("Event bus is not running, dropped transition of order #{} to {}", orderId, status);
+            return;
+        }
+        long sequence = cursor.incrementAndGet();
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint > minimumConsumerSequence(sequence)) {
+            producerWaits.increment();
+            while (wrapPoint > minimumConsumerSequence(sequence) && running) {
+                LockSupport.parkNanos(1_000);
+            }
+        }
+        int index = (int) (sequence & mask);
+        slots[index].set(orderId, sellerId, customerId, courierId, status, version,
+                stageStartedAtMillis, System.currentTimeMillis());
+        publishedLaps.lazySet(index, (int) (sequence >>> lapShift));
+        publishedEvents.increment();
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            signalAll();
+        }
+    }
+
+    /**
+     * Events published but not yet handled by the slowest consumer.
+     */
+    public long depth() {
+        long head = cursor.get();
+        return head - minimumConsumerSequence(head);
+    }
+
+    @Override
+    public void start() {
+        List<Worker> started = new ArrayList<>();
+        consumerProvider.orderedStream().forEach(consumer -> {
+            Worker worker = new Worker(consumer, cursor.get());
+            started.add(worker);
+            Gauge.builder("event.bus.lag", worker, w -> cursor.get() - w.sequence.get())
+                    .tag("consumer", consumer.consumerName())
+                    .register(meterRegistry);
+        });
+        workers = List.copyOf(started);
+        running = true;
+        workers.forEach(worker -> worker.thread.start());
+        log.info("Order event bus started: ring of {}, {} wait strategy, consumers {}",
+                slots.length, waitStrategy, workers.stream().map(w -> w.consumer.consumerName()).toList());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        signalAll();
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        workers = List.of();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before and stops after the web server, so requests in flight can still publish.
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 4096;
+    }
+
+    private long minimumConsumerSequence(long fallback) {
+        long minimum = fallback;
+        for (Worker worker : workers) {
+            minimum = Math.min(minimum, worker.sequence.get());
+        }
+        return minimum;
+    }
+
+    private long highestPublished(long low, long high) {
+        for (long sequence = low; sequence <= high; sequence++) {
+            if (publishedLaps.get((int) (sequence & mask)) != (int) (sequence >>> lapShift)) {
+                return sequence - 1;
+            }
+        }
+        return high;
+    }
+
+    private void signalAll() {
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private final OrderEventConsumer consumer;
+        private final AtomicLong sequence;
+        private final Thread thread;
+        private final Counter errors;
+
+        Worker(OrderEventConsumer consumer, long startSequence) {
+            this.consumer = consumer;
+            this.sequence = new AtomicLong(startSequence);
+            this.thread = new Thread(this, "order-events-" + consumer.consumerName());
+            this.thread.setDaemon(true);
+            this.errors = meterRegistry.counter("event.bus.errors", "consumer", consumer.consumerName());
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            while (true) {
+                long available = waitFor(next);
+                if (available < next) {
+                    return;
+                }
+                for (long current = next; current <= available; current++) {
+                    OrderStatusChanged event = slots[(int) (current & mask)];
+                    try {
+                        consumer.onEvent(event, current, current == available);
+                    } catch (RuntimeException e) {
+                        errors.increment();
+                        log.warn("Consumer {} failed on {}: {}", consumer.consumerName(), event, e.getMessage());
+                    }
+                }
+                sequence.lazySet(available);
+                next = available + 1;
+            }
+        }
+
+        /**
+         * @return the highest published sequence at or above {@code next}, or {@code next - 1}
+         * once the bus is stopped and everything published has been handled
+         */
+        private long waitFor(long next) {
+            int idleRounds = 0;
+            while (true) {
+                long claimed = cursor.get();
+                if (claimed >= next) {
+                    long available = highestPublished(next, claimed);
+                    if (available >= next) {
+                        return available;
+                    }
+                }
+                if (!running) {
+                    return next - 1;
+                }
+                idleRounds = idle(idleRounds, next);
+            }
+        }
+
+        private int idle(int idleRounds, long next) {
+            switch (waitStrategy) {
+                case BUSY_SPIN -> Thread.onSpinWait();
+                case YIELDING -> {
+                    if (idleRounds < 100) {
+                        Thread.onSpinWait();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+                case SLEEPING -> {
+                    if (idleRounds < 100) {
+                        Thread.onSpinWait();
+                    } else if (idleRounds < 200) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(SLEEP_NANOS);
+                    }
+                }
+                case BLOCKING -> {
+                    lock.lock();
+                    try {
+                        if (running && cursor.get() < next) {
+                            published.awaitNanos(BLOCKING_TIMEOUT_NANOS);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+            return idleRounds + 1;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ru.itmo.ordermanagement.event;
+
+/**
+ * Receives order transitions from the {@link OrderEventBus} on a dedicated thread. Every bean of
+ * this type is registered with the bus on startup.
+ */
+public interface OrderEventConsumer {
+
+    /**
+     * Name used for the consumer's thread and metrics.
+     */
+    String consumerName();
+
+    /**
+     * Called for every event in publication order. {@code endOfBatch} is {@code true} for the last
+     * event currently available, which is the place to flush any per-batch work.
+     */
+    void onEvent(OrderStatusChanged event, long sequence, boolean endOfBatch);
+}
@@ -0,0 +1,78 @@
+package ru.itmo.ordermanagement.event;
+
+import ru.itmo.ordermanagement.model.enums.OrderStatus;
+
+/**
+ * A committed order transition as seen by {@link OrderEventConsumer}s.
+ * <p>
+ * Instances are preallocated slots of the {@link OrderEventBus} ring and are overwritten once every
+ * consumer has moved past them, so a consumer must copy whatever it needs to keep beyond
+ * {@link OrderEventConsumer#onEvent}.
+ */
+public final class OrderStatusChanged {
+
+    private long orderId;
+    private long sellerId;
+    private long customerId;
+    private long courierId;
+    private OrderStatus status;
+    private long version;
+    private long stageStartedAtMillis;
+    private long committedAtMillis;
+
+    void set(long orderId, long sellerId, long customerId, long courierId,
+             OrderStatus status, long version, long stageStartedAtMillis, long committedAtMillis) {
+        this.orderId = orderId;
+        this.sellerId = sellerId;
+        this.customerId = customerId;
+        this.courierId = courierId;
+        this.status = status;
+        this.version = version;
+        this.stageStartedAtMillis = stageStartedAtMillis;
+        this.committedAtMillis = committedAtMillis;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public long getSellerId() {
+        return sellerId;
+    }
+
+    public long getCustomerId() {
+        return customerId;
+    }
+
+    /**
+     * @return the assigned courier, or 0 if there is none
+     */
+    public long getCourierId() {
+        return courierId;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return when the stage completed by this transition started (see
+     * {@link ru.itmo.ordermanagement.model.enums.OrderStage}), or 0 if it completes none
+     */
+    public long getStageStartedAtMillis() {
+        return stageStartedAtMillis;
+    }
+
+    public long getCommittedAtMillis() {
+        return committedAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderStatusChanged{order=" + orderId + ", status=" + status + ", version=" + version + "}";
+    }
+}
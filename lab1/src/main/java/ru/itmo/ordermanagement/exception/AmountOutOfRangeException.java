@@ -0,0 +1,15 @@
+package ru.itmo.ordermanagement.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A price or order total that {@link ru.itmo.ordermanagement.model.value.Money} cannot hold exactly:
+ * fractions of a kopeck, or more than the columns or a {@code long} of kopecks fit.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class AmountOutOfRangeException extends RuntimeException {
+    public AmountOutOfRangeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package ru.itmo.ordermanagement.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class OrderLockTimeoutException extends RuntimeException {
+    public OrderLockTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -20,6 +20,10 @@ public class Courier {
 
     private String phone;
 
+    private Double latitude;
+
+    private Double longitude;
+
     @Column(nullable = false)
     @Builder.Default
     private Boolean available = true;
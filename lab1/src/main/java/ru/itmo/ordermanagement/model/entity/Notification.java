@@ -2,6 +2,7 @@ package ru.itmo.ordermanagement.model.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.itmo.ordermanagement.model.enums.NotificationTemplate;
 import ru.itmo.ordermanagement.model.enums.RecipientType;
 
 import java.time.LocalDateTime;
@@ -28,7 +29,14 @@ public class Notification {
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
 
-    @Column(nullable = false, columnDefinition = "TEXT")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "template_code", length = 32)
+    private NotificationTemplate templateCode;
+
+    @Column(length = 500)
+    private String params;
+
+    @Column(columnDefinition = "TEXT")
     private String message;
 
     @Column(name = "is_read", nullable = false)
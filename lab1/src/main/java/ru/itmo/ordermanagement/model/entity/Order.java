@@ -2,9 +2,12 @@ package ru.itmo.ordermanagement.model.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.itmo.ordermanagement.exception.AmountOutOfRangeException;
+import ru.itmo.ordermanagement.model.enums.OrderStage;
 import ru.itmo.ordermanagement.model.enums.OrderStatus;
+import ru.itmo.ordermanagement.model.value.Money;
+import ru.itmo.ordermanagement.model.value.MoneyConverter;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,6 +19,9 @@ import java.util.List;
 @Builder
 public class Order {
 
+    /** Largest amount that fits {@code orders.total_price NUMERIC(12, 2)}. */
+    public static final Money MAX_TOTAL_PRICE = Money.ofKopecks(999_999_999_999L);
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -36,8 +42,13 @@ public class Order {
     @Column(nullable = false, length = 50)
     private OrderStatus status;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    @Convert(converter = MoneyConverter.class)
     @Column(name = "total_price", precision = 12, scale = 2)
-    private BigDecimal totalPrice;
+    private Money totalPrice;
 
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -48,6 +59,15 @@ public class Order {
     @Column(name = "seller_notified_at")
     private LocalDateTime sellerNotifiedAt;
 
+    @Column(name = "reviewed_at")
+    private LocalDateTime reviewedAt;
+
+    @Column(name = "assembled_at")
+    private LocalDateTime assembledAt;
+
+    @Column(name = "courier_search_started_at")
+    private LocalDateTime courierSearchStartedAt;
+
     @Column(name = "courier_notified_at")
     private LocalDateTime courierNotifiedAt;
 
@@ -63,6 +83,9 @@ public class Order {
     @Column(name = "cancel_reason", length = 500)
     private String cancelReason;
 
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    private Long changeSeq;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<OrderItem> items = new ArrayList<>();
@@ -75,7 +98,7 @@ public class Order {
             this.status = OrderStatus.CREATED;
         }
         if (this.totalPrice == null) {
-            this.totalPrice = BigDecimal.ZERO;
+            this.totalPrice = Money.ZERO;
         }
     }
 
@@ -89,9 +112,36 @@ public class Order {
         item.setOrder(this);
     }
 
+    /**
+     * @return when the stage completed by the current status started, or {@code null} if the
+     * current status does not complete a timed stage
+     */
+    public LocalDateTime stageStartedAt() {
+        OrderStage stage = OrderStage.endedBy(status);
+        if (stage == null) {
+            return null;
+        }
+        return switch (stage) {
+            case REVIEW -> sellerNotifiedAt;
+            case COOKING -> reviewedAt;
+            case COURIER_ASSIGNMENT -> courierSearchStartedAt;
+            case COURIER_ARRIVAL -> courierAssignedAt;
+        };
+    }
+
     public void recalculateTotal() {
-        this.totalPrice = items.stream()
-                .map(i -> i.getPrice().multiply(BigDecimal.valueOf(i.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long kopecks = 0;
+        try {
+            for (OrderItem item : items) {
+                kopecks = Math.addExact(kopecks, Math.multiplyExact(item.getPrice().kopecks(), item.getQuantity()));
+            }
+        } catch (ArithmeticException e) {
+            throw new AmountOutOfRangeException("Order total exceeds " + MAX_TOTAL_PRICE);
+        }
+        Money total = Money.ofKopecks(kopecks);
+        if (total.isGreaterThan(MAX_TOTAL_PRICE)) {
+            throw new AmountOutOfRangeException("Order total " + total + " exceeds " + MAX_TOTAL_PRICE);
+        }
+        this.totalPrice = total;
     }
 }
@@ -2,7 +2,8 @@ package ru.itmo.ordermanagement.model.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
-import java.math.BigDecimal;
+import ru.itmo.ordermanagement.model.value.Money;
+import ru.itmo.ordermanagement.model.value.MoneyConverter;
 
 @Entity
 @Table(name = "order_items")
@@ -26,7 +27,8 @@ public class OrderItem {
     @Builder.Default
     private Integer quantity = 1;
 
+    @Convert(converter = MoneyConverter.class)
     @Column(nullable = false, precision = 12, scale = 2)
     @Builder.Default
-    private BigDecimal price = BigDecimal.ZERO;
+    private Money price = Money.ZERO;
 }
@@ -20,6 +20,10 @@ public class Seller {
 
     private String address;
 
+    private Double latitude;
+
+    private Double longitude;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
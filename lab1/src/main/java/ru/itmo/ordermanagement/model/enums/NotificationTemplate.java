@@ -0,0 +1,25 @@
+package ru.itmo.ordermanagement.model.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Notification texts. {@code {0}} is the order id, {@code {1}}.. are the stored parameters,
+ * {@code {n:status}} renders an {@link OrderStatus} name with its localized label.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum NotificationTemplate {
+    CUSTOMER_STATUS_CHANGED(
+            "Изменён статус заказа #{0}: \"{1:status}\"",
+            "Order #{0} status changed: \"{1:status}\""),
+    SELLER_NEW_ORDER(
+            "Новый заказ #{0} от покупателя {1}",
+            "New order #{0} from customer {1}"),
+    COURIER_NEW_DELIVERY(
+            "Уведомление о новом заказе #{0}. Адрес заведения: {1}",
+            "New delivery request for order #{0}. Pickup address: {1}");
+
+    private final String russian;
+    private final String english;
+}
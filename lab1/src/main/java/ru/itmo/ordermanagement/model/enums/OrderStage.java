@@ -0,0 +1,37 @@
+package ru.itmo.ordermanagement.model.enums;
+
+/**
+ * Timed stages of the order lifecycle, each ending with a transition to {@link #endStatus}.
+ */
+public enum OrderStage {
+    /** From the seller being notified to accepting the order. */
+    REVIEW(OrderStatus.COOKING),
+    /** From acceptance to the order being assembled. */
+    COOKING(OrderStatus.ASSEMBLING),
+    /** From the start of the courier search to a courier being assigned. */
+    COURIER_ASSIGNMENT(OrderStatus.AWAITING_COURIER),
+    /** From courier assignment to the courier arriving at the seller. */
+    COURIER_ARRIVAL(OrderStatus.IN_DELIVERY);
+
+    private final OrderStatus endStatus;
+
+    OrderStage(OrderStatus endStatus) {
+        this.endStatus = endStatus;
+    }
+
+    public OrderStatus getEndStatus() {
+        return endStatus;
+    }
+
+    /**
+     * @return the stage that a transition to {@code status} completes, or {@code null}
+     */
+    public static OrderStage endedBy(OrderStatus status) {
+        for (OrderStage stage : values()) {
+            if (stage.endStatus == status) {
+                return stage;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.itmo.ordermanagement.model.value;
+
+import ru.itmo.ordermanagement.exception.AmountOutOfRangeException;
+
+import java.math.BigDecimal;
+
+/**
+ * Amount of money in roubles held as a whole number of kopecks.
+ * <p>
+ * Conversion from {@link BigDecimal} is exact: amounts with fractions of a kopeck or beyond a
+ * {@code long} of kopecks are rejected with {@link AmountOutOfRangeException}.
+ */
+public record Money(long kopecks) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    public static Money ofKopecks(long kopecks) {
+        return kopecks == 0 ? ZERO : new Money(kopecks);
+    }
+
+    public static Money fromDecimal(BigDecimal amount) {
+        try {
+            return ofKopecks(amount.movePointRight(2).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new AmountOutOfRangeException("Amount " + amount.toPlainString()
+                    + " is not a whole number of kopecks or is out of range");
+        }
+    }
+
+    public BigDecimal toDecimal() {
+        return BigDecimal.valueOf(kopecks, 2);
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return kopecks > other.kopecks;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(kopecks, other.kopecks);
+    }
+
+    @Override
+    public String toString() {
+        return toDecimal().toPlainString();
+    }
+}
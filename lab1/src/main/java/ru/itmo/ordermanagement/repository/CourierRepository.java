@@ -1,13 +1,27 @@
 package ru.itmo.ordermanagement.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.itmo.ordermanagement.model.entity.Courier;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CourierRepository extends JpaRepository<Courier, Long> {
 
     Optional<Courier> findFirstByAvailableTrue();
+
+    List<Courier> findByAvailableTrue();
+
+    @Modifying
+    @Query("update Courier c set c.available = false where c.id = :id and c.available = true")
+    int claimIfAvailable(@Param("id") Long courierId);
+
+    @Modifying
+    @Query("update Courier c set c.available = true where c.id = :id")
+    int markAvailable(@Param("id") Long courierId);
 }
@@ -1,10 +1,14 @@
 package ru.itmo.ordermanagement.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.itmo.ordermanagement.model.entity.Notification;
 import ru.itmo.ordermanagement.model.enums.RecipientType;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -15,4 +19,21 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
 
     List<Notification> findByRecipientTypeAndRecipientIdAndIsReadFalseOrderByCreatedAtDesc(
             RecipientType recipientType, Long recipientId);
+
+    /**
+     * {@code orderCreatedAt} bounds the partitions searched: a notification is never older than its order.
+     */
+    @Modifying
+    @Query("update Notification n set n.params = :params "
+            + "where n.id = :id and n.createdAt >= :orderCreatedAt and n.isRead = false")
+    int updateParamsIfUnread(@Param("id") Long id,
+                             @Param("orderCreatedAt") LocalDateTime orderCreatedAt,
+                             @Param("params") String params);
+
+    /**
+     * {@code createdAfter} bounds the partitions searched, see {@code PartitionBounds}.
+     */
+    @Modifying
+    @Query("update Notification n set n.isRead = true where n.id = :id and n.createdAt >= :createdAfter")
+    int markAsReadIfCreatedSince(@Param("id") Long id, @Param("createdAfter") LocalDateTime createdAfter);
 }
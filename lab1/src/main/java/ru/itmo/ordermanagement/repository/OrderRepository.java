@@ -1,12 +1,19 @@
 package ru.itmo.ordermanagement.repository;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.itmo.ordermanagement.model.entity.Order;
 import ru.itmo.ordermanagement.model.enums.OrderStatus;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -19,7 +26,116 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     List<Order> findByCourierId(Long courierId);
 
-    List<Order> findByStatusAndSellerNotifiedAtBefore(OrderStatus status, LocalDateTime deadline);
+    Optional<Order> findFirstByCourierIdAndStatusIn(Long courierId, Collection<OrderStatus> statuses);
 
-    List<Order> findByStatusAndCourierAssignedAtBefore(OrderStatus status, LocalDateTime deadline);
+    /**
+     * Orders in {@code status} notified to the seller between {@code notifiedAfter} and {@code deadline}.
+     * The bound is on the status timestamp rather than {@code created_at}, so an order created long ago is
+     * still found; every partition is searched, through {@code idx_orders_status}, which holds few rows of
+     * a live status in old months.
+     */
+    @Query("select o.id from Order o where o.status = :status and o.sellerNotifiedAt < :deadline "
+            + "and o.sellerNotifiedAt >= :notifiedAfter and mod(o.seller.id, :shards) = :shard")
+    List<Long> findIdsByStatusAndSellerNotifiedAtBefore(@Param("status") OrderStatus status,
+                                                        @Param("deadline") LocalDateTime deadline,
+                                                        @Param("notifiedAfter") LocalDateTime notifiedAfter,
+                                                        @Param("shards") int shards,
+                                                        @Param("shard") int shard);
+
+    @Query("select o.id from Order o where o.status = :status and o.courierAssignedAt < :deadline "
+            + "and o.courierAssignedAt >= :assignedAfter and mod(o.seller.id, :shards) = :shard")
+    List<Long> findIdsByStatusAndCourierAssignedAtBefore(@Param("status") OrderStatus status,
+                                                         @Param("deadline") LocalDateTime deadline,
+                                                         @Param("assignedAfter") LocalDateTime assignedAfter,
+                                                         @Param("shards") int shards,
+                                                         @Param("shard") int shard);
+
+    @Query("select o.seller.id as sellerId, count(o) as orders from Order o where o.status = :status "
+            + "group by o.seller.id")
+    List<SellerOrderCount> countBySellerAndStatus(@Param("status") OrderStatus status);
+
+    /**
+     * Lookups and updates by id that take {@code createdAfter} search only the partitions of {@code orders}
+     * from that month on: the order's own {@code createdAt}, or a bound from {@code PartitionBounds}.
+     */
+    Optional<Order> findByIdAndCreatedAtGreaterThanEqual(Long id, LocalDateTime createdAfter);
+
+    @EntityGraph(attributePaths = {"customer", "seller", "courier"})
+    List<Order> findByIdIn(Collection<Long> ids);
+
+    @EntityGraph(attributePaths = {"customer", "seller", "courier"})
+    List<Order> findByIdInAndCreatedAtGreaterThanEqual(Collection<Long> ids, LocalDateTime createdAfter);
+
+    /**
+     * Row-locks the given orders that are still in {@code status}, in id order, and returns their ids.
+     */
+    @Query(value = "select id from orders where id in (:ids) and created_at >= :createdAfter and status = :status "
+            + "order by id for update", nativeQuery = true)
+    List<Long> lockIdsByIdInAndStatus(@Param("ids") Collection<Long> ids,
+                                      @Param("createdAfter") LocalDateTime createdAfter,
+                                      @Param("status") String status);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Order o set o.status = ru.itmo.ordermanagement.model.enums.OrderStatus.COOKING, "
+            + "o.version = o.version + 1, o.updatedAt = :now, o.reviewedAt = :now "
+            + "where o.id in :ids and o.createdAt >= :createdAfter")
+    int acceptByIdIn(@Param("ids") Collection<Long> ids,
+                     @Param("createdAfter") LocalDateTime createdAfter,
+                     @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Order o set o.status = ru.itmo.ordermanagement.model.enums.OrderStatus.ASSEMBLING, "
+            + "o.version = o.version + 1, o.updatedAt = :now, o.assembledAt = :now "
+            + "where o.id in :ids and o.createdAt >= :createdAfter")
+    int assembleByIdIn(@Param("ids") Collection<Long> ids,
+                       @Param("createdAfter") LocalDateTime createdAfter,
+                       @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Order o set o.status = ru.itmo.ordermanagement.model.enums.OrderStatus.SEARCHING_COURIER, "
+            + "o.version = o.version + 1, o.updatedAt = :now, o.courierSearchStartedAt = :now "
+            + "where o.id in :ids and o.createdAt >= :createdAfter")
+    int startCourierSearchByIdIn(@Param("ids") Collection<Long> ids,
+                                 @Param("createdAfter") LocalDateTime createdAfter,
+                                 @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Order o set o.status = ru.itmo.ordermanagement.model.enums.OrderStatus.CANCELLED, "
+            + "o.version = o.version + 1, o.updatedAt = :now, o.cancelledAt = :now, o.cancelReason = :reason "
+            + "where o.id in :ids and o.createdAt >= :createdAfter")
+    int cancelByIdIn(@Param("ids") Collection<Long> ids,
+                     @Param("createdAfter") LocalDateTime createdAfter,
+                     @Param("reason") String reason,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * Lowest {@code change_seq} a transaction that is still running could write (see {@code schema.sql}):
+     * values below it are final and can be handed out without a later commit landing behind them.
+     */
+    @Query(value = "select cast(cast(pg_snapshot_xmin(pg_current_snapshot()) as text) as bigint) << 20",
+            nativeQuery = true)
+    long findSettledChangeSeqBound();
+
+    @EntityGraph(attributePaths = {"customer", "seller", "courier"})
+    List<Order> findByChangeSeqGreaterThanAndChangeSeqLessThanOrderByChangeSeqAsc(Long after, Long before,
+                                                                               Limit limit);
+
+    @Query("select o.id as orderId, o.status as status, o.version as version from Order o "
+            + "where o.seller.id = :sellerId and o.status in :statuses")
+    List<BoardEntry> findBoardEntriesBySellerId(@Param("sellerId") Long sellerId,
+                                                @Param("statuses") Collection<OrderStatus> statuses);
+
+    interface SellerOrderCount {
+        Long getSellerId();
+
+        Long getOrders();
+    }
+
+    interface BoardEntry {
+        Long getOrderId();
+
+        OrderStatus getStatus();
+
+        Long getVersion();
+    }
 }
@@ -0,0 +1,197 @@
+package ru.itmo.ordermanagement.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory pool of available courier ids, the fast path for claiming a courier.
+ * <p>
+ * Membership is a bitset of atomic words indexed by courier id: whoever clears a courier's bit
+ * first owns the courier, so claiming never blocks. The queue only gives {@link #claimAny()} a
+ * first-come-first-served order and may hold stale ids, which are skipped on poll and compacted
+ * away once they outnumber the live ones. The {@code couriers.available} column stays the durable
+ * record; the pool is rebuilt from it on startup and reconciled with it periodically.
+ * <p>
+ * Every change of a courier's membership is stamped from a counter. Reconciliation compares the pool
+ * with a database read taken after {@link #stamp()}, and leaves alone the couriers changed since then:
+ * for them the read may already be out of date.
+ */
+@Component
+public class AvailableCourierPool {
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_WORDS = (1 << CHUNK_SHIFT) / Long.SIZE;
+    private static final int COMPACTION_SLACK = 1024;
+
+    private final ConcurrentHashMap<Long, AtomicLongArray> chunks = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Long> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueLength = new AtomicInteger();
+    private final AtomicLong clock = new AtomicLong();
+    /** Stamp of the latest change per courier; entries reconciled past are pruned. */
+    private final ConcurrentHashMap<Long, Long> changedAt = new ConcurrentHashMap<>();
+
+    public AvailableCourierPool(MeterRegistry meterRegistry) {
+        Gauge.builder("courier.pool.size", size, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public void add(Long courierId) {
+        if (setBit(courierId)) {
+            queue.offer(courierId);
+            if (queueLength.incrementAndGet() > 2 * size.get() + COMPACTION_SLACK) {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if this call took the courier out of the pool
+     */
+    public boolean tryClaim(Long courierId) {
+        return clearBit(courierId);
+    }
+
+    public Optional<Long> claimAny() {
+        Long courierId;
+        while ((courierId = queue.poll()) != null) {
+            queueLength.decrementAndGet();
+            if (clearBit(courierId)) {
+                return Optional.of(courierId);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public boolean contains(Long courierId) {
+        AtomicLongArray words = chunks.get(courierId >>> CHUNK_SHIFT);
+        return words != null && (words.get(wordIndex(courierId)) & bitMask(courierId)) != 0;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Marks the courier as changed without changing membership, for a change that becomes visible in the
+     * database only after it was made in the pool, such as a claim whose transaction commits later.
+     */
+    public void touch(Long courierId) {
+        changedAt.put(courierId, clock.incrementAndGet());
+    }
+
+    /**
+     * Position of the change counter; take it before reading the database for {@link #reconcile}.
+     */
+    public long stamp() {
+        return clock.get();
+    }
+
+    /**
+     * Brings the pool in line with the set of couriers the database reports as available, except for
+     * couriers added, claimed or touched after {@code since}.
+     *
+     * @return how many ids had to be added or removed
+     */
+    public int reconcile(Collection<Long> availableInDatabase, long since) {
+        Set<Long> expected = new HashSet<>(availableInDatabase);
+        int drift = 0;
+        for (Long courierId : members()) {
+            if (!expected.contains(courierId) && !changedSince(courierId, since) && clearBit(courierId)) {
+                drift++;
+            }
+        }
+        for (Long courierId : expected) {
+            if (!contains(courierId) && !changedSince(courierId, since)) {
+                add(courierId);
+                drift++;
+            }
+        }
+        compact();
+        changedAt.values().removeIf(stamp -> stamp <= since);
+        return drift;
+    }
+
+    private boolean changedSince(Long courierId, long since) {
+        Long stamp = changedAt.get(courierId);
+        return stamp != null && stamp > since;
+    }
+
+    private List<Long> members() {
+        List<Long> members = new ArrayList<>(size.get());
+        chunks.forEach((chunk, words) -> {
+            for (int i = 0; i < CHUNK_WORDS; i++) {
+                long word = words.get(i);
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    members.add((chunk << CHUNK_SHIFT) | ((long) i * Long.SIZE + bit));
+                    word &= word - 1;
+                }
+            }
+        });
+        return members;
+    }
+
+    private boolean setBit(Long courierId) {
+        AtomicLongArray words = chunks.computeIfAbsent(courierId >>> CHUNK_SHIFT,
+                chunk -> new AtomicLongArray(CHUNK_WORDS));
+        int index = wordIndex(courierId);
+        long mask = bitMask(courierId);
+        while (true) {
+            long current = words.get(index);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, current, current | mask)) {
+                size.incrementAndGet();
+                touch(courierId);
+                return true;
+            }
+        }
+    }
+
+    private boolean clearBit(Long courierId) {
+        AtomicLongArray words = chunks.get(courierId >>> CHUNK_SHIFT);
+        if (words == null) {
+            return false;
+        }
+        int index = wordIndex(courierId);
+        long mask = bitMask(courierId);
+        while (true) {
+            long current = words.get(index);
+            if ((current & mask) == 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, current, current & ~mask)) {
+                size.decrementAndGet();
+                touch(courierId);
+                return true;
+            }
+        }
+    }
+
+    private void compact() {
+        queue.removeIf(courierId -> !contains(courierId));
+        queueLength.set(queue.size());
+    }
+
+    private static int wordIndex(long courierId) {
+        return (int) (courierId & ((1 << CHUNK_SHIFT) - 1)) >>> 6;
+    }
+
+    private static long bitMask(long courierId) {
+        return 1L << (courierId & 63);
+    }
+}
@@ -0,0 +1,157 @@
+package ru.itmo.ordermanagement.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * One part of an exported table: a directory with a gzip file per column ({@code <column>.gz}, one
+ * value per line, {@code \N} for null, backslash escapes for line breaks) and a {@code _schema} file
+ * with the row count and the column types. Rows are streamed straight into the column files, so
+ * memory does not grow with the part. The part is written under a temporary name and appears under
+ * its final name only on {@link #commit()}.
+ */
+class ColumnarPartWriter implements AutoCloseable {
+
+    record Column(String name, String type) {
+    }
+
+    private static final String NULL = "\\N";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final List<Column> columns;
+    private final Path target;
+    private final Path temporary;
+    private final List<Writer> writers = new ArrayList<>();
+    private long rows;
+    private boolean closed;
+
+    ColumnarPartWriter(Path target, List<Column> columns) {
+        this.columns = columns;
+        this.target = target;
+        this.temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            delete(temporary);
+            Files.createDirectories(temporary);
+            for (Column column : columns) {
+                writers.add(new BufferedWriter(new OutputStreamWriter(
+                        new GZIPOutputStream(Files.newOutputStream(temporary.resolve(column.name() + ".gz")), BUFFER_SIZE),
+                        StandardCharsets.UTF_8), BUFFER_SIZE));
+            }
+        } catch (IOException e) {
+            abort();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void append(Object... values) {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + columns.size() + " values, got " + values.length);
+        }
+        try {
+            for (int i = 0; i < values.length; i++) {
+                Writer writer = writers.get(i);
+                writer.write(encode(values[i]));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rows++;
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    /**
+     * Finishes the column files and moves the part to its final name, replacing an older copy.
+     */
+    void commit() {
+        close();
+        try {
+            StringBuilder schema = new StringBuilder("rows ").append(rows).append('\n');
+            for (Column column : columns) {
+                schema.append(column.name()).append(' ').append(column.type()).append('\n');
+            }
+            Files.writeString(temporary.resolve("_schema"), schema);
+            delete(target);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drops the unfinished part.
+     */
+    void abort() {
+        try {
+            close();
+        } catch (UncheckedIOException ignored) {
+            // the part is thrown away anyway
+        }
+        try {
+            delete(temporary);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException failure = null;
+        for (Writer writer : writers) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> tree = Files.walk(path)) {
+            for (Path file : tree.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static String encode(Object value) {
+        if (value == null) {
+            return NULL;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        String text = value.toString();
+        if (text.indexOf('\\') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return text.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+}
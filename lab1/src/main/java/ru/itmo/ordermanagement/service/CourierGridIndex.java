@@ -0,0 +1,127 @@
+package ru.itmo.ordermanagement.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory uniform grid of available couriers with known coordinates.
+ * <p>
+ * Cells are {@code app.dispatch.grid-cell-degrees} wide in both latitude and longitude. A nearest
+ * search walks square rings of cells around the query point and stops once no unvisited ring can
+ * hold anything closer than the best candidate found so far. Distances use the equirectangular
+ * approximation, which is accurate at city scale; the antimeridian is not handled.
+ */
+@Component
+public class CourierGridIndex {
+
+    private final double cellDegrees;
+    private final int maxRings;
+    private final ConcurrentHashMap<Long, Position> positions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    public CourierGridIndex(MeterRegistry meterRegistry,
+                            @Value("${app.dispatch.grid-cell-degrees:0.01}") double cellDegrees,
+                            @Value("${app.dispatch.max-search-rings:50}") int maxRings) {
+        this.cellDegrees = cellDegrees;
+        this.maxRings = maxRings;
+        Gauge.builder("courier.grid.size", positions, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    public void put(Long courierId, double latitude, double longitude) {
+        Position position = new Position(latitude, longitude, cellKey(cellIndex(latitude), cellIndex(longitude)));
+        Position previous = positions.put(courierId, position);
+        if (previous != null && previous.cell() != position.cell()) {
+            removeFromCell(previous.cell(), courierId);
+        }
+        cells.compute(position.cell(), (key, members) -> {
+            Set<Long> set = members != null ? members : ConcurrentHashMap.newKeySet();
+            set.add(courierId);
+            return set;
+        });
+    }
+
+    public boolean remove(Long courierId) {
+        Position position = positions.remove(courierId);
+        if (position == null) {
+            return false;
+        }
+        removeFromCell(position.cell(), courierId);
+        return true;
+    }
+
+    public void clear() {
+        positions.clear();
+        cells.clear();
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * Finds the nearest indexed courier within {@code app.dispatch.max-search-rings} cells.
+     * The grid is only a spatial index: the caller still has to claim the courier.
+     */
+    public Optional<Long> findNearest(double latitude, double longitude) {
+        int centerLat = cellIndex(latitude);
+        int centerLon = cellIndex(longitude);
+        double lonScale = Math.cos(Math.toRadians(latitude));
+
+        Long best = null;
+        double bestDistanceSq = Double.MAX_VALUE;
+        for (int ring = 0; ring <= maxRings; ring++) {
+            for (int dLat = -ring; dLat <= ring; dLat++) {
+                boolean edgeRow = Math.abs(dLat) == ring;
+                for (int dLon = -ring; dLon <= ring; dLon += edgeRow ? 1 : 2 * ring) {
+                    long key = cellKey(centerLat + dLat, centerLon + dLon);
+                    Set<Long> members = cells.get(key);
+                    if (members == null) {
+                        continue;
+                    }
+                    for (Long courierId : members) {
+                        Position position = positions.get(courierId);
+                        if (position == null || position.cell() != key) {
+                            continue;
+                        }
+                        double dy = position.latitude() - latitude;
+                        double dx = (position.longitude() - longitude) * lonScale;
+                        double distanceSq = dx * dx + dy * dy;
+                        if (distanceSq < bestDistanceSq) {
+                            bestDistanceSq = distanceSq;
+                            best = courierId;
+                        }
+                    }
+                }
+            }
+            double nextRingBound = ring * cellDegrees * lonScale;
+            if (best != null && bestDistanceSq <= nextRingBound * nextRingBound) {
+                break;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    private void removeFromCell(long cell, Long courierId) {
+        cells.computeIfPresent(cell, (key, members) -> {
+            members.remove(courierId);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private int cellIndex(double degrees) {
+        return (int) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+
+    private record Position(double latitude, double longitude, long cell) {
+    }
+}
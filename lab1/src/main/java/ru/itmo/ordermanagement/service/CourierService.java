@@ -0,0 +1,265 @@
+package ru.itmo.ordermanagement.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.itmo.ordermanagement.config.ShardRouter;
+import ru.itmo.ordermanagement.dto.CreateCourierRequest;
+import ru.itmo.ordermanagement.dto.UpdateLocationRequest;
+import ru.itmo.ordermanagement.exception.InvalidOrderStateException;
+import ru.itmo.ordermanagement.exception.ResourceNotFoundException;
+import ru.itmo.ordermanagement.model.entity.Courier;
+import ru.itmo.ordermanagement.model.entity.Order;
+import ru.itmo.ordermanagement.model.entity.Seller;
+import ru.itmo.ordermanagement.model.enums.OrderStatus;
+import ru.itmo.ordermanagement.repository.CourierRepository;
+import ru.itmo.ordermanagement.repository.OrderRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Slf4j
+public class CourierService {
+
+    private static final List<OrderStatus> PENDING_PICKUP_STATUSES =
+            List.of(OrderStatus.AWAITING_COURIER, OrderStatus.DELAYED);
+
+    private final CourierRepository courierRepository;
+    private final OrderRepository orderRepository;
+    private final AvailableCourierPool availableCourierPool;
+    private final CourierGridIndex courierGridIndex;
+    private final ShardRouter shardRouter;
+    private final ReferenceDataReplicator referenceDataReplicator;
+    private final Timer searchTimer;
+    private final Counter drift;
+
+    public CourierService(CourierRepository courierRepository,
+                          OrderRepository orderRepository,
+                          AvailableCourierPool availableCourierPool,
+                          CourierGridIndex courierGridIndex,
+                          ShardRouter shardRouter,
+                          ReferenceDataReplicator referenceDataReplicator,
+                          MeterRegistry meterRegistry) {
+        this.courierRepository = courierRepository;
+        this.orderRepository = orderRepository;
+        this.availableCourierPool = availableCourierPool;
+        this.courierGridIndex = courierGridIndex;
+        this.shardRouter = shardRouter;
+        this.referenceDataReplicator = referenceDataReplicator;
+        this.searchTimer = meterRegistry.timer("courier.dispatch.search");
+        this.drift = meterRegistry.counter("courier.pool.drift");
+    }
+
+    @Transactional
+    public Courier createCourier(CreateCourierRequest request) {
+        Courier courier = Courier.builder()
+                .name(request.getName())
+                .phone(request.getPhone())
+                .latitude(request.getLatitude())
+                .longitude(request.getLongitude())
+                .available(true)
+                .build();
+        courier = courierRepository.save(courier);
+        releaseAfterCommit(courier);
+        referenceDataReplicator.replicateCourier(courier.getId());
+        return courier;
+    }
+
+    @Transactional
+    public Courier updateLocation(Long courierId, UpdateLocationRequest request) {
+        Courier courier = findCourierOrThrow(courierId);
+        courier.setLatitude(request.getLatitude());
+        courier.setLongitude(request.getLongitude());
+        courier = courierRepository.save(courier);
+        final Courier moved = courier;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (availableCourierPool.contains(courierId)) {
+                    index(moved);
+                }
+            }
+        });
+        return courier;
+    }
+
+    @Transactional
+    public Courier goOnline(Long courierId) {
+        List<Long> pendingPickup = shardRouter.queryAllShards(() -> orderRepository
+                .findFirstByCourierIdAndStatusIn(courierId, PENDING_PICKUP_STATUSES)
+                .map(Order::getId).stream().toList());
+        if (!pendingPickup.isEmpty()) {
+            throw new InvalidOrderStateException(String.format(
+                    "Courier #%d has not picked up order #%d yet", courierId, pendingPickup.get(0)));
+        }
+        Courier courier = findCourierOrThrow(courierId);
+        courier.setAvailable(true);
+        courier = courierRepository.save(courier);
+        releaseAfterCommit(courier);
+        log.info("Courier #{} is online", courierId);
+        return courier;
+    }
+
+    @Transactional
+    public Courier goOffline(Long courierId) {
+        Courier courier = findCourierOrThrow(courierId);
+        courier.setAvailable(false);
+        courier = courierRepository.save(courier);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                availableCourierPool.tryClaim(courierId);
+                courierGridIndex.remove(courierId);
+            }
+        });
+        log.info("Courier #{} is offline", courierId);
+        return courier;
+    }
+
+    /**
+     * Claims an available courier for the seller's order and marks them unavailable in the current
+     * transaction: the nearest indexed courier when the seller has coordinates, otherwise the one
+     * that has waited longest in the pool. The database stays the arbiter, so a courier that the
+     * pool still lists but the database doesn't is dropped and counted as drift.
+     * <p>
+     * Couriers are owned by the home shard. Called from a transaction on another shard, the claim
+     * commits on its own and is undone if the caller's transaction does not commit.
+     */
+    @Transactional
+    public Optional<Courier> claimCourierFor(Seller seller) {
+        if (shardRouter.isOnHomeShard()) {
+            return claim(seller);
+        }
+        Optional<Courier> claimed = shardRouter.inTransaction(ShardRouter.HOME_SHARD, false, () -> claim(seller));
+        claimed.ifPresent(courier -> TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            shardRouter.inTransaction(ShardRouter.HOME_SHARD, false,
+                                    () -> courierRepository.markAvailable(courier.getId()));
+                            release(courier);
+                        }
+                    }
+                }));
+        return claimed;
+    }
+
+    private Optional<Courier> claim(Seller seller) {
+        if (seller.getLatitude() != null && seller.getLongitude() != null) {
+            Timer.Sample sample = Timer.start();
+            try {
+                Optional<Long> candidate;
+                while ((candidate = courierGridIndex.findNearest(seller.getLatitude(), seller.getLongitude())).isPresent()) {
+                    Long courierId = candidate.get();
+                    courierGridIndex.remove(courierId);
+                    if (availableCourierPool.tryClaim(courierId)) {
+                        Optional<Courier> claimed = claimInDatabase(courierId);
+                        if (claimed.isPresent()) {
+                            return claimed;
+                        }
+                    }
+                }
+            } finally {
+                sample.stop(searchTimer);
+            }
+        }
+
+        Optional<Long> pooled;
+        while ((pooled = availableCourierPool.claimAny()).isPresent()) {
+            courierGridIndex.remove(pooled.get());
+            Optional<Courier> claimed = claimInDatabase(pooled.get());
+            if (claimed.isPresent()) {
+                return claimed;
+            }
+        }
+
+        Optional<Courier> unpooled = courierRepository.findFirstByAvailableTrue();
+        if (unpooled.isPresent()) {
+            drift.increment();
+            return claimInDatabase(unpooled.get().getId());
+        }
+        return Optional.empty();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        courierGridIndex.clear();
+        List<Courier> available = courierRepository.findByAvailableTrue();
+        available.forEach(this::release);
+        log.info("Courier pool rebuilt: {} available, {} with coordinates",
+                availableCourierPool.size(), courierGridIndex.size());
+    }
+
+    @Scheduled(fixedDelayString = "${app.courier-pool.reconcile-interval-ms:300000}",
+            initialDelayString = "${app.courier-pool.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long since = availableCourierPool.stamp();
+        List<Courier> available = courierRepository.findByAvailableTrue();
+        int corrected = availableCourierPool.reconcile(available.stream().map(Courier::getId).toList(), since);
+        for (Courier courier : available) {
+            if (availableCourierPool.contains(courier.getId())) {
+                index(courier);
+            }
+        }
+        if (corrected > 0) {
+            drift.increment(corrected);
+            log.warn("Courier pool reconciled with database: {} entries corrected", corrected);
+        }
+    }
+
+    private Optional<Courier> claimInDatabase(Long courierId) {
+        if (courierRepository.claimIfAvailable(courierId) == 0) {
+            drift.increment();
+            return Optional.empty();
+        }
+        Courier courier = courierRepository.findById(courierId).orElseThrow();
+        courier.setAvailable(false);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    release(courier);
+                } else {
+                    // the claim left the pool before the database saw it
+                    availableCourierPool.touch(courierId);
+                }
+            }
+        });
+        return Optional.of(courier);
+    }
+
+    private void releaseAfterCommit(Courier courier) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release(courier);
+            }
+        });
+    }
+
+    private void release(Courier courier) {
+        availableCourierPool.add(courier.getId());
+        index(courier);
+    }
+
+    private void index(Courier courier) {
+        if (courier.getLatitude() != null && courier.getLongitude() != null) {
+            courierGridIndex.put(courier.getId(), courier.getLatitude(), courier.getLongitude());
+        }
+    }
+
+    private Courier findCourierOrThrow(Long courierId) {
+        return courierRepository.findById(courierId)
+                .orElseThrow(() -> new ResourceNotFoundException("Courier not found: " + courierId));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.itmo.ordermanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Remembers the latest customer status notification of each order for
+ * {@code app.notifications.coalesce-window-ms} after it was created, so that further transitions
+ * within that window rewrite it with the newest status instead of adding rows. A window of 0
+ * turns coalescing off.
+ * <p>
+ * Entries are only recorded after commit, and the rewrite itself only applies to a row that is
+ * still unread, so a stale entry at worst costs a regular insert.
+ */
+@Component
+public class NotificationCoalescer {
+
+    private final boolean enabled;
+    private final Cache<Long, Long> pending;
+    private final Counter coalesced;
+
+    public NotificationCoalescer(MeterRegistry meterRegistry,
+                                 @Value("${app.notifications.coalesce-window-ms:0}") long windowMs,
+                                 @Value("${app.notifications.coalesce-max-orders:100000}") long maxOrders) {
+        this.enabled = windowMs > 0;
+        this.pending = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(Math.max(1, windowMs)))
+                .maximumSize(maxOrders)
+                .build();
+        this.coalesced = meterRegistry.counter("notification.coalesced");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the notification that a new status of this order may be folded into
+     */
+    public Optional<Long> pendingNotification(Long orderId) {
+        return enabled ? Optional.ofNullable(pending.getIfPresent(orderId)) : Optional.empty();
+    }
+
+    public void openWindowAfterCommit(Long orderId, Long notificationId) {
+        if (!enabled) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pending.put(orderId, notificationId);
+            }
+        });
+    }
+
+    public void closeWindow(Long orderId) {
+        pending.invalidate(orderId);
+    }
+
+    /**
+     * Counts a notification row that was not written because it was coalesced.
+     */
+    public void recordCoalesced() {
+        coalesced.increment();
+    }
+}
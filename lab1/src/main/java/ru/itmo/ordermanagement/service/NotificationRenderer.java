@@ -0,0 +1,141 @@
+package ru.itmo.ordermanagement.service;
+
+import org.springframework.stereotype.Component;
+import ru.itmo.ordermanagement.model.enums.NotificationTemplate;
+import ru.itmo.ordermanagement.model.enums.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders stored notifications (template code + compact parameters) into text when they are read.
+ * Templates are parsed once at startup into literal and argument segments.
+ */
+@Component
+public class NotificationRenderer {
+
+    private static final char PARAM_SEPARATOR = '\u001F';
+
+    private final Map<NotificationTemplate, Segment[]> russian = new EnumMap<>(NotificationTemplate.class);
+    private final Map<NotificationTemplate, Segment[]> english = new EnumMap<>(NotificationTemplate.class);
+
+    public NotificationRenderer() {
+        for (NotificationTemplate template : NotificationTemplate.values()) {
+            russian.put(template, compile(template.getRussian()));
+            english.put(template, compile(template.getEnglish()));
+        }
+    }
+
+    public static String encodeParams(String... params) {
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                encoded.append(PARAM_SEPARATOR);
+            }
+            if (params[i] != null) {
+                encoded.append(params[i].replace(PARAM_SEPARATOR, ' '));
+            }
+        }
+        return encoded.toString();
+    }
+
+    public String render(NotificationTemplate template, Long orderId, String params, Locale locale) {
+        boolean isEnglish = "en".equals(locale.getLanguage());
+        Segment[] segments = (isEnglish ? english : russian).get(template);
+        String[] args = decodeArgs(orderId, params);
+
+        StringBuilder text = new StringBuilder(64);
+        for (Segment segment : segments) {
+            if (segment.literal() != null) {
+                text.append(segment.literal());
+                continue;
+            }
+            String arg = segment.argIndex() < args.length ? args[segment.argIndex()] : "";
+            text.append(segment.status() ? statusLabel(arg, isEnglish) : arg);
+        }
+        return text.toString();
+    }
+
+    private static String[] decodeArgs(Long orderId, String params) {
+        List<String> args = new ArrayList<>(3);
+        args.add(String.valueOf(orderId));
+        if (params != null) {
+            int start = 0;
+            for (int i = 0; i <= params.length(); i++) {
+                if (i == params.length() || params.charAt(i) == PARAM_SEPARATOR) {
+                    args.add(params.substring(start, i));
+                    start = i + 1;
+                }
+            }
+        }
+        return args.toArray(new String[0]);
+    }
+
+    private static Segment[] compile(String pattern) {
+        List<Segment> segments = new ArrayList<>();
+        int pos = 0;
+        while (pos < pattern.length()) {
+            int open = pattern.indexOf('{', pos);
+            if (open < 0) {
+                segments.add(Segment.ofText(pattern.substring(pos)));
+                break;
+            }
+            int close = pattern.indexOf('}', open);
+            if (open > pos) {
+                segments.add(Segment.ofText(pattern.substring(pos, open)));
+            }
+            String placeholder = pattern.substring(open + 1, close);
+            int colon = placeholder.indexOf(':');
+            if (colon < 0) {
+                segments.add(new Segment(null, Integer.parseInt(placeholder), false));
+            } else {
+                segments.add(new Segment(null, Integer.parseInt(placeholder.substring(0, colon)),
+                        "status".equals(placeholder.substring(colon + 1))));
+            }
+            pos = close + 1;
+        }
+        return segments.toArray(new Segment[0]);
+    }
+
+    private static String statusLabel(String status, boolean english) {
+        OrderStatus orderStatus;
+        try {
+            orderStatus = OrderStatus.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            return status;
+        }
+        if (english) {
+            return switch (orderStatus) {
+                case CREATED -> "Created";
+                case IN_PROCESSING -> "Processing";
+                case COOKING -> "Cooking";
+                case ASSEMBLING -> "Assembling";
+                case SEARCHING_COURIER -> "Searching for a courier";
+                case AWAITING_COURIER -> "Awaiting courier";
+                case DELAYED -> "Delayed";
+                case IN_DELIVERY -> "In delivery";
+                case CANCELLED -> "Cancelled";
+            };
+        }
+        return switch (orderStatus) {
+            case CREATED -> "Создан";
+            case IN_PROCESSING -> "В обработке";
+            case COOKING -> "Готовится";
+            case ASSEMBLING -> "В сборке";
+            case SEARCHING_COURIER -> "Поиск курьера";
+            case AWAITING_COURIER -> "Ожидание курьера";
+            case DELAYED -> "Задерживается";
+            case IN_DELIVERY -> "В доставке";
+            case CANCELLED -> "Отменён";
+        };
+    }
+
+    private record Segment(String literal, int argIndex, boolean status) {
+        static Segment ofText(String text) {
+            return new Segment(text, -1, false);
+        }
+    }
+}
@@ -2,15 +2,26 @@ package ru.itmo.ordermanagement.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.itmo.ordermanagement.config.ShardRouter;
 import ru.itmo.ordermanagement.dto.NotificationResponse;
 import ru.itmo.ordermanagement.model.entity.Notification;
 import ru.itmo.ordermanagement.model.entity.Order;
+import ru.itmo.ordermanagement.model.enums.NotificationTemplate;
 import ru.itmo.ordermanagement.model.enums.RecipientType;
 import ru.itmo.ordermanagement.repository.NotificationRepository;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 
@@ -19,62 +30,112 @@ import java.util.stream.Collectors;
 @Slf4j
 public class NotificationService {
 
+    private static final String NOTIFICATION_SQL = "insert into notifications (id, recipient_type, recipient_id, "
+            + "order_id, template_code, params, is_read, created_at) values (?, ?, ?, ?, ?, ?, false, ?)";
+
+    private static final String NEXT_IDS_SQL = "select nextval(?::regclass) from generate_series(1, ?)";
+
     private final NotificationRepository notificationRepository;
+    private final NotificationRenderer notificationRenderer;
+    private final NotificationCoalescer notificationCoalescer;
+    private final ShardRouter shardRouter;
+    private final PartitionBounds partitionBounds;
+    private final JdbcTemplate jdbcTemplate;
 
     @Transactional
-    public Notification send(RecipientType recipientType, Long recipientId,
-                             Order order, String message) {
+    public Notification send(RecipientType recipientType, Long recipientId, Order order,
+                             NotificationTemplate template, String... params) {
         Notification notification = Notification.builder()
                 .recipientType(recipientType)
                 .recipientId(recipientId)
                 .order(order)
-                .message(message)
+                .templateCode(template)
+                .params(NotificationRenderer.encodeParams(params))
                 .isRead(false)
                 .build();
         notification = notificationRepository.save(notification);
-        log.info("Notification sent to {} #{}: {}", recipientType, recipientId, message);
+        log.info("Notification sent to {} #{}: {} for order #{}", recipientType, recipientId, template, order.getId());
         return notification;
     }
 
     @Transactional
     public void notifyCustomerStatusChanged(Order order) {
-        String message = String.format("Изменён статус заказа #%d: \"%s\"",
-                order.getId(), translateStatus(order.getStatus().name()));
-        send(RecipientType.CUSTOMER, order.getCustomer().getId(), order, message);
+        if (coalesceIntoPending(order)) {
+            return;
+        }
+        Notification notification = send(RecipientType.CUSTOMER, order.getCustomer().getId(), order,
+                NotificationTemplate.CUSTOMER_STATUS_CHANGED, order.getStatus().name());
+        notificationCoalescer.openWindowAfterCommit(order.getId(), notification.getId());
+    }
+
+    /**
+     * Saves status-change notifications for several orders as one JDBC batch, with ids taken from
+     * {@code notifications_id_seq} up front, as {@link OrderGroupCommit} does: entities with
+     * {@code IDENTITY} ids would be inserted one statement at a time.
+     */
+    @Transactional
+    public void notifyCustomersStatusChanged(List<Order> orders) {
+        List<Order> notified = orders.stream()
+                .filter(order -> !coalesceIntoPending(order))
+                .toList();
+        if (!notified.isEmpty()) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            Iterator<Long> ids = jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class,
+                    "notifications_id_seq", notified.size()).iterator();
+            List<Object[]> rows = new ArrayList<>(notified.size());
+            for (Order order : notified) {
+                Long id = ids.next();
+                rows.add(new Object[]{id, RecipientType.CUSTOMER.name(), order.getCustomer().getId(), order.getId(),
+                        NotificationTemplate.CUSTOMER_STATUS_CHANGED.name(),
+                        NotificationRenderer.encodeParams(order.getStatus().name()), now});
+                notificationCoalescer.openWindowAfterCommit(order.getId(), id);
+            }
+            jdbcTemplate.batchUpdate(NOTIFICATION_SQL, rows);
+        }
+        log.info("Status change notifications sent to {} customers, {} coalesced",
+                notified.size(), orders.size() - notified.size());
     }
 
     @Transactional
     public void notifySellerNewOrder(Order order) {
-        String message = String.format("Новый заказ #%d от покупателя %s",
-                order.getId(), order.getCustomer().getName());
-        send(RecipientType.SELLER, order.getSeller().getId(), order, message);
+        send(RecipientType.SELLER, order.getSeller().getId(), order,
+                NotificationTemplate.SELLER_NEW_ORDER, order.getCustomer().getName());
     }
 
     @Transactional
     public void notifyCourierNewDelivery(Order order) {
-        String message = String.format("Уведомление о новом заказе #%d. Адрес заведения: %s",
-                order.getId(), order.getSeller().getAddress());
-        send(RecipientType.COURIER, order.getCourier().getId(), order, message);
+        send(RecipientType.COURIER, order.getCourier().getId(), order,
+                NotificationTemplate.COURIER_NEW_DELIVERY, order.getSeller().getAddress());
     }
 
-    public List<NotificationResponse> getNotifications(RecipientType recipientType, Long recipientId) {
-        return notificationRepository
+    public List<NotificationResponse> getNotifications(RecipientType recipientType, Long recipientId,
+                                                       Locale locale) {
+        return query(recipientType, recipientId, () -> notificationRepository
                 .findByRecipientTypeAndRecipientIdOrderByCreatedAtDesc(recipientType, recipientId)
                 .stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+                .map(n -> toResponse(n, locale))
+                .collect(Collectors.toList()));
     }
 
-    public List<NotificationResponse> getUnreadNotifications(RecipientType recipientType, Long recipientId) {
-        return notificationRepository
+    public List<NotificationResponse> getUnreadNotifications(RecipientType recipientType, Long recipientId,
+                                                             Locale locale) {
+        return query(recipientType, recipientId, () -> notificationRepository
                 .findByRecipientTypeAndRecipientIdAndIsReadFalseOrderByCreatedAtDesc(recipientType, recipientId)
                 .stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+                .map(n -> toResponse(n, locale))
+                .collect(Collectors.toList()));
     }
 
     @Transactional
     public void markAsRead(Long notificationId) {
+        shardRouter.bindId(notificationId);
+        Optional<LocalDateTime> createdAfter =
+                partitionBounds.createdAtLowerBound(PartitionBounds.NOTIFICATIONS, notificationId);
+        if (createdAfter.isPresent()
+                && notificationRepository.markAsReadIfCreatedSince(notificationId, createdAfter.get()) > 0) {
+            return;
+        }
+        // no bound known yet, or the notification is older than its id suggests
         Notification notification = notificationRepository.findById(notificationId)
                 .orElseThrow(() -> new ru.itmo.ordermanagement.exception.ResourceNotFoundException(
                         "Notification not found: " + notificationId));
@@ -82,30 +143,52 @@ public class NotificationService {
         notificationRepository.save(notification);
     }
 
-    private NotificationResponse toResponse(Notification n) {
+    /**
+     * Folds the order's new status into its still-unread notification from the current coalescing
+     * window, if there is one.
+     */
+    private boolean coalesceIntoPending(Order order) {
+        Optional<Long> pending = notificationCoalescer.pendingNotification(order.getId());
+        if (pending.isEmpty()) {
+            return false;
+        }
+        String params = NotificationRenderer.encodeParams(order.getStatus().name());
+        if (notificationRepository.updateParamsIfUnread(pending.get(), order.getCreatedAt(), params) == 0) {
+            notificationCoalescer.closeWindow(order.getId());
+            return false;
+        }
+        notificationCoalescer.recordCoalesced();
+        log.info("Notification #{} for order #{} now shows status {}", pending.get(), order.getId(), order.getStatus());
+        return true;
+    }
+
+    /**
+     * A seller's notifications are all on the seller's shard; customers and couriers get theirs from
+     * every shard, newest first.
+     */
+    private List<NotificationResponse> query(RecipientType recipientType, Long recipientId,
+                                             Supplier<List<NotificationResponse>> query) {
+        if (recipientType == RecipientType.SELLER || shardRouter.shardCount() == 1) {
+            return shardRouter.inTransaction(shardRouter.shardOfSeller(recipientId), true, query);
+        }
+        List<NotificationResponse> merged = new ArrayList<>(shardRouter.queryAllShards(query));
+        merged.sort(Comparator.comparing(NotificationResponse::getCreatedAt).reversed());
+        return merged;
+    }
+
+    private NotificationResponse toResponse(Notification n, Locale locale) {
+        Long orderId = n.getOrder().getId();
+        String message = n.getTemplateCode() != null
+                ? notificationRenderer.render(n.getTemplateCode(), orderId, n.getParams(), locale)
+                : n.getMessage();
         return NotificationResponse.builder()
                 .id(n.getId())
                 .recipientType(n.getRecipientType())
                 .recipientId(n.getRecipientId())
-                .orderId(n.getOrder().getId())
-                .message(n.getMessage())
+                .orderId(orderId)
+                .message(message)
                 .isRead(n.getIsRead())
                 .createdAt(n.getCreatedAt())
                 .build();
     }
-
-    private String translateStatus(String status) {
-        return switch (status) {
-            case "CREATED" -> "Создан";
-            case "IN_PROCESSING" -> "В обработке";
-            case "COOKING" -> "Готовится";
-            case "ASSEMBLING" -> "В сборке";
-            case "SEARCHING_COURIER" -> "Поиск курьера";
-            case "AWAITING_COURIER" -> "Ожидание курьера";
-            case "DELAYED" -> "Задерживается";
-            case "IN_DELIVERY" -> "В доставке";
-            case "CANCELLED" -> "Отменён";
-            default -> status;
-        };
-    }
 }
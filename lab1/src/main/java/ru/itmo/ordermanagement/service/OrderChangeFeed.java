@@ -0,0 +1,122 @@
+package ru.itmo.ordermanagement.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import ru.itmo.ordermanagement.config.ShardRouter;
+import ru.itmo.ordermanagement.dto.OrderChangesResponse;
+import ru.itmo.ordermanagement.event.OrderEventConsumer;
+import ru.itmo.ordermanagement.event.OrderStatusChanged;
+import ru.itmo.ordermanagement.exception.BadRequestException;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serves {@code GET /api/orders/changes}: pages of orders whose {@code change_seq} is above the
+ * caller's cursor, optionally parking the request until something changes.
+ * <p>
+ * {@code change_seq} is taken when a row is written, not when it commits, so a page only holds
+ * changes below the oldest transaction still running in the database (see {@code schema.sql}); a
+ * long write transaction holds the feed back until it finishes. Parked polls are re-checked after
+ * every transition committed by this instance and answered with whatever has settled at
+ * {@code waitMs}.
+ */
+@Component
+@Slf4j
+public class OrderChangeFeed implements OrderEventConsumer {
+
+    private final OrderService orderService;
+    private final ShardRouter shardRouter;
+    private final int maxLimit;
+    private final long maxWaitMs;
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean recheckScheduled = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "order-change-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OrderChangeFeed(OrderService orderService,
+                           ShardRouter shardRouter,
+                           @Value("${app.change-feed.max-limit:500}") int maxLimit,
+                           @Value("${app.change-feed.max-wait-ms:30000}") long maxWaitMs) {
+        this.orderService = orderService;
+        this.shardRouter = shardRouter;
+        this.maxLimit = maxLimit;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    public DeferredResult<OrderChangesResponse> poll(int shard, long since, int limit, long waitMs) {
+        if (shard < 0 || shard >= shardRouter.shardCount()) {
+            throw new BadRequestException("Shard must be between 0 and " + (shardRouter.shardCount() - 1) + ": " + shard);
+        }
+        int pageSize = Math.max(1, Math.min(limit, maxLimit));
+        long wait = Math.max(0, Math.min(waitMs, maxWaitMs));
+
+        OrderChangesResponse page = fetch(shard, since, pageSize);
+        if (!page.getOrders().isEmpty() || wait == 0) {
+            DeferredResult<OrderChangesResponse> result = new DeferredResult<>();
+            result.setResult(page);
+            return result;
+        }
+
+        DeferredResult<OrderChangesResponse> result = new DeferredResult<>(wait);
+        Waiter waiter = new Waiter(shard, since, pageSize, result);
+        result.onTimeout(() -> {
+            waiters.remove(waiter);
+            result.setResult(fetch(shard, since, pageSize));
+        });
+        result.onCompletion(() -> waiters.remove(waiter));
+        waiters.add(waiter);
+        return result;
+    }
+
+    @Override
+    public String consumerName() {
+        return "change-feed";
+    }
+
+    @Override
+    public void onEvent(OrderStatusChanged event, long sequence, boolean endOfBatch) {
+        if (endOfBatch && !waiters.isEmpty() && recheckScheduled.compareAndSet(false, true)) {
+            executor.execute(this::recheckWaiters);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void recheckWaiters() {
+        recheckScheduled.set(false);
+        for (Waiter waiter : waiters) {
+            if (waiter.result().isSetOrExpired()) {
+                waiters.remove(waiter);
+                continue;
+            }
+            try {
+                OrderChangesResponse page = fetch(waiter.shard(), waiter.since(), waiter.limit());
+                if (!page.getOrders().isEmpty() && waiter.result().setResult(page)) {
+                    waiters.remove(waiter);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Change feed re-check failed for cursor {}: {}", waiter.since(), e.getMessage());
+            }
+        }
+    }
+
+    private OrderChangesResponse fetch(int shard, long since, int limit) {
+        return orderService.getOrderChanges(shard, since, limit);
+    }
+
+    private record Waiter(int shard, long since, int limit, DeferredResult<OrderChangesResponse> result) {
+    }
+}
@@ -0,0 +1,301 @@
+package ru.itmo.ordermanagement.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.itmo.ordermanagement.config.ShardRouter;
+import ru.itmo.ordermanagement.dto.CreateOrderRequest;
+import ru.itmo.ordermanagement.dto.OrderResponse;
+import ru.itmo.ordermanagement.exception.ResourceNotFoundException;
+import ru.itmo.ordermanagement.model.entity.Customer;
+import ru.itmo.ordermanagement.model.entity.Order;
+import ru.itmo.ordermanagement.model.entity.OrderItem;
+import ru.itmo.ordermanagement.model.entity.Seller;
+import ru.itmo.ordermanagement.model.enums.NotificationTemplate;
+import ru.itmo.ordermanagement.model.enums.OrderStatus;
+import ru.itmo.ordermanagement.model.enums.RecipientType;
+import ru.itmo.ordermanagement.repository.CustomerRepository;
+import ru.itmo.ordermanagement.repository.SellerRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Optional group commit for {@code createOrder} ({@code app.group-commit.enabled}): concurrent
+ * creations are queued, and one thread writes up to {@code app.group-commit.max-batch-size} of them
+ * per shard in a single transaction, so that they share one commit instead of paying for one each.
+ * <p>
+ * A batch waits at most {@code app.group-commit.max-wait-ms} after its first order. Ids are taken
+ * from the sequences up front, so orders, items and notifications go in as three JDBC batches.
+ * Every order passes the same checks as {@link OrderService#createOrder}; an order that fails them
+ * fails alone. If the batch transaction itself fails, its orders are retried one transaction each.
+ * With the queue full ({@code app.group-commit.queue-capacity}) an order is created directly on the
+ * caller's thread.
+ */
+@Component
+@Slf4j
+public class OrderGroupCommit {
+
+    private static final String ORDER_SQL = "insert into orders (id, customer_id, seller_id, status, version, "
+            + "total_price, created_at, updated_at, seller_notified_at) values (?, ?, ?, ?, 0, ?, ?, ?, ?)";
+
+    private static final String ITEM_SQL = "insert into order_items (id, order_id, product_name, quantity, price) "
+            + "values (?, ?, ?, ?, ?)";
+
+    private static final String NOTIFICATION_SQL = "insert into notifications (id, recipient_type, recipient_id, "
+            + "order_id, template_code, params, is_read, created_at) values (?, ?, ?, ?, ?, ?, false, ?)";
+
+    private static final String NEXT_IDS_SQL = "select nextval(?::regclass) from generate_series(1, ?)";
+
+    private record Pending(CreateOrderRequest request, CompletableFuture<OrderResponse> result) {
+    }
+
+    private final OrderService orderService;
+    private final CustomerRepository customerRepository;
+    private final SellerRepository sellerRepository;
+    private final SellerAdmissionControl sellerAdmissionControl;
+    private final NotificationCoalescer notificationCoalescer;
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Pending> queue;
+    private final DistributionSummary batchSize;
+    private final Counter fallbacks;
+    private volatile boolean running;
+    private Thread writer;
+
+    public OrderGroupCommit(OrderService orderService,
+                            CustomerRepository customerRepository,
+                            SellerRepository sellerRepository,
+                            SellerAdmissionControl sellerAdmissionControl,
+                            NotificationCoalescer notificationCoalescer,
+                            ShardRouter shardRouter,
+                            JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.group-commit.enabled:false}") boolean enabled,
+                            @Value("${app.group-commit.max-batch-size:100}") int maxBatchSize,
+                            @Value("${app.group-commit.max-wait-ms:5}") long maxWaitMs,
+                            @Value("${app.group-commit.queue-capacity:1000}") int queueCapacity) {
+        this.orderService = orderService;
+        this.customerRepository = customerRepository;
+        this.sellerRepository = sellerRepository;
+        this.sellerAdmissionControl = sellerAdmissionControl;
+        this.notificationCoalescer = notificationCoalescer;
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = meterRegistry.summary("order.group-commit.batch.size");
+        this.fallbacks = meterRegistry.counter("order.group-commit.fallbacks");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::run, "order-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Order group commit started: batches of up to {} orders, waiting up to {} ms",
+                maxBatchSize, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queues the order for the next batch; the future completes once its batch has committed.
+     */
+    public CompletableFuture<OrderResponse> submit(CreateOrderRequest request) {
+        Pending pending = new Pending(request, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            return CompletableFuture.completedFuture(orderService.createOrder(request));
+        }
+        return pending.result();
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = running ? queue.take() : queue.poll();
+                if (first == null) {
+                    break;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    Pending next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // stopping: what is already queued is still written below
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        batchSize.record(batch.size());
+        Map<Integer, List<Pending>> byShard = batch.stream().collect(Collectors.groupingBy(
+                pending -> shardRouter.shardOfSeller(pending.request().getSellerId()),
+                LinkedHashMap::new, Collectors.toList()));
+        byShard.forEach(this::commit);
+    }
+
+    private void commit(int shard, List<Pending> batch) {
+        List<Pending> admitted = new ArrayList<>();
+        try {
+            List<OrderResponse> created = transactionTemplate.execute(status -> {
+                shardRouter.bind(shard);
+                return write(batch, admitted);
+            });
+            for (int i = 0; i < admitted.size(); i++) {
+                admitted.get(i).result().complete(created.get(i));
+            }
+        } catch (RuntimeException e) {
+            fallbacks.increment();
+            log.warn("Group commit of {} orders on shard {} failed, creating them one by one: {}",
+                    batch.size(), shard, e.toString());
+            for (Pending pending : batch) {
+                if (pending.result().isDone()) {
+                    continue;
+                }
+                try {
+                    pending.result().complete(admitted.contains(pending)
+                            ? orderService.createAdmittedOrder(pending.request())
+                            : orderService.createOrder(pending.request()));
+                } catch (RuntimeException failure) {
+                    pending.result().completeExceptionally(failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks and admits every order of the batch, failing the rejected ones right away, then writes
+     * the admitted ones (collected into {@code admitted}) and returns their responses in that order.
+     */
+    private List<OrderResponse> write(List<Pending> batch, List<Pending> admitted) {
+        Map<Long, Customer> customers = customerRepository.findAllById(batch.stream()
+                        .map(pending -> pending.request().getCustomerId()).distinct().toList()).stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        Map<Long, Seller> sellers = sellerRepository.findAllById(batch.stream()
+                        .map(pending -> pending.request().getSellerId()).distinct().toList()).stream()
+                .collect(Collectors.toMap(Seller::getId, Function.identity()));
+
+        List<Order> orders = new ArrayList<>();
+        for (Pending pending : batch) {
+            CreateOrderRequest request = pending.request();
+            try {
+                Customer customer = customers.get(request.getCustomerId());
+                if (customer == null) {
+                    throw new ResourceNotFoundException("Customer not found: " + request.getCustomerId());
+                }
+                Seller seller = sellers.get(request.getSellerId());
+                if (seller == null) {
+                    throw new ResourceNotFoundException("Seller not found: " + request.getSellerId());
+                }
+                Order order = orderService.newOrder(customer, seller, request);
+                sellerAdmissionControl.admit(seller.getId());
+                orders.add(order);
+                admitted.add(pending);
+            } catch (RuntimeException e) {
+                pending.result().completeExceptionally(e);
+            }
+        }
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Iterator<Long> orderIds = nextIds("orders_id_seq", orders.size());
+        List<Object[]> orderRows = new ArrayList<>();
+        List<Object[]> itemRows = new ArrayList<>();
+        for (Order order : orders) {
+            order.setId(orderIds.next());
+            order.setVersion(0L);
+            order.setCreatedAt(now);
+            order.setUpdatedAt(now);
+            orderRows.add(new Object[]{order.getId(), order.getCustomer().getId(), order.getSeller().getId(),
+                    OrderStatus.IN_PROCESSING.name(), order.getTotalPrice().toDecimal(), Timestamp.valueOf(now),
+                    Timestamp.valueOf(now), Timestamp.valueOf(order.getSellerNotifiedAt())});
+        }
+        Iterator<Long> itemIds = nextIds("order_items_id_seq",
+                orders.stream().mapToInt(order -> order.getItems().size()).sum());
+        for (Order order : orders) {
+            for (OrderItem item : order.getItems()) {
+                item.setId(itemIds.next());
+                itemRows.add(new Object[]{item.getId(), order.getId(), item.getProductName(), item.getQuantity(),
+                        item.getPrice().toDecimal()});
+            }
+        }
+        Iterator<Long> notificationIds = nextIds("notifications_id_seq", orders.size() * 2);
+        List<Object[]> notificationRows = new ArrayList<>();
+        for (Order order : orders) {
+            notificationRows.add(new Object[]{notificationIds.next(), RecipientType.SELLER.name(),
+                    order.getSeller().getId(), order.getId(), NotificationTemplate.SELLER_NEW_ORDER.name(),
+                    NotificationRenderer.encodeParams(order.getCustomer().getName()), Timestamp.valueOf(now)});
+            Long customerNotificationId = notificationIds.next();
+            notificationRows.add(new Object[]{customerNotificationId, RecipientType.CUSTOMER.name(),
+                    order.getCustomer().getId(), order.getId(), NotificationTemplate.CUSTOMER_STATUS_CHANGED.name(),
+                    NotificationRenderer.encodeParams(OrderStatus.IN_PROCESSING.name()), Timestamp.valueOf(now)});
+            notificationCoalescer.openWindowAfterCommit(order.getId(), customerNotificationId);
+        }
+
+        jdbcTemplate.batchUpdate(ORDER_SQL, orderRows);
+        jdbcTemplate.batchUpdate(ITEM_SQL, itemRows);
+        jdbcTemplate.batchUpdate(NOTIFICATION_SQL, notificationRows);
+        log.info("Orders {} created in one batch, status: IN_PROCESSING",
+                orders.stream().map(Order::getId).toList());
+        return orders.stream().map(orderService::registerCreated).toList();
+    }
+
+    private Iterator<Long> nextIds(String sequence, int count) {
+        return jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, sequence, count).iterator();
+    }
+}
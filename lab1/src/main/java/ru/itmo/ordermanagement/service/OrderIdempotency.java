@@ -0,0 +1,242 @@
+package ru.itmo.ordermanagement.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.itmo.ordermanagement.config.ShardRouter;
+import ru.itmo.ordermanagement.dto.CreateOrderRequest;
+import ru.itmo.ordermanagement.dto.OrderResponse;
+import ru.itmo.ordermanagement.exception.BadRequestException;
+import ru.itmo.ordermanagement.exception.IdempotencyKeyReuseException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@code Idempotency-Key} support for order creation: a retried request gets the response of the
+ * first one instead of creating another order.
+ * <p>
+ * Keys are scoped to the customer. A key is looked up in a bounded in-memory LRU, then in
+ * {@code order_idempotency_keys} on the seller's shard. A key seen for the first time is claimed
+ * in that table in the same transaction that creates the order, so the order and its stored
+ * response commit together, and a duplicate running on another instance waits on the row and then
+ * replays it. Duplicates arriving at this instance while the first request is still running wait
+ * for its result instead of starting their own transaction. Keys expire after
+ * {@code app.idempotency.ttl-hours}; a replay with a different request body is rejected.
+ */
+@Component
+@Slf4j
+public class OrderIdempotency {
+
+    public record Result(OrderResponse order, boolean replayed) {
+    }
+
+    private record Key(Long customerId, String key) {
+    }
+
+    private record Entry(String requestHash, String response) {
+    }
+
+    /**
+     * The stored entry of a key, with the order when this call created it.
+     */
+    private record Outcome(Entry entry, OrderResponse created) {
+    }
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final String CLAIM_SQL = "insert into order_idempotency_keys "
+            + "(customer_id, idempotency_key, request_hash, created_at) values (?, ?, ?, now()) "
+            + "on conflict (customer_id, idempotency_key) do update "
+            + "set request_hash = excluded.request_hash, order_id = null, response = null, created_at = now() "
+            + "where order_idempotency_keys.created_at < ?";
+
+    private final OrderService orderService;
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Cache<Key, Entry> cache;
+    private final ConcurrentMap<Key, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter cacheReplays;
+    private final Counter databaseReplays;
+    private final Counter coalesced;
+
+    public OrderIdempotency(OrderService orderService,
+                            ShardRouter shardRouter,
+                            JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                            @Value("${app.idempotency.cache-size:10000}") long cacheSize) {
+        this.orderService = orderService;
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.executed = meterRegistry.counter("order.idempotency.requests", "result", "executed");
+        this.cacheReplays = meterRegistry.counter("order.idempotency.requests", "result", "cache");
+        this.databaseReplays = meterRegistry.counter("order.idempotency.requests", "result", "database");
+        this.coalesced = meterRegistry.counter("order.idempotency.requests", "result", "coalesced");
+    }
+
+    public Result createOrder(String idempotencyKey, CreateOrderRequest request) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        Key key = new Key(request.getCustomerId(), idempotencyKey);
+        String requestHash = hash(request);
+
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            cacheReplays.increment();
+            return replay(key, cached, requestHash);
+        }
+
+        CompletableFuture<Entry> own = new CompletableFuture<>();
+        CompletableFuture<Entry> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            coalesced.increment();
+            return replay(key, await(running), requestHash);
+        }
+        try {
+            Outcome outcome = loadOrExecute(key, requestHash, request);
+            own.complete(outcome.entry());
+            return outcome.created() != null
+                    ? new Result(outcome.created(), false)
+                    : replay(key, outcome.entry(), requestHash);
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:3600000}",
+            initialDelayString = "${app.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        LocalDateTime cutoff = cutoff();
+        shardRouter.forEachShard(shard -> {
+            int purged = jdbcTemplate.update("delete from order_idempotency_keys where created_at < ?", cutoff);
+            if (purged > 0) {
+                log.debug("Purged {} expired idempotency keys on shard {}", purged, shard);
+            }
+        });
+    }
+
+    private Outcome loadOrExecute(Key key, String requestHash, CreateOrderRequest request) {
+        int shard = shardRouter.shardOfSeller(request.getSellerId());
+        Entry stored = find(shard, key);
+        if (stored != null) {
+            databaseReplays.increment();
+            cache.put(key, stored);
+            return new Outcome(stored, null);
+        }
+
+        OrderResponse order = transactionTemplate.execute(status -> {
+            shardRouter.bind(shard);
+            if (jdbcTemplate.update(CLAIM_SQL, key.customerId(), key.key(), requestHash, cutoff()) == 0) {
+                status.setRollbackOnly();
+                return null;
+            }
+            OrderResponse created = orderService.createOrder(request);
+            jdbcTemplate.update("update order_idempotency_keys set order_id = ?, response = ? "
+                            + "where customer_id = ? and idempotency_key = ?",
+                    created.getId(), encode(created), key.customerId(), key.key());
+            return created;
+        });
+        if (order == null) {
+            // another instance committed the same key while this one waited on the row
+            stored = find(shard, key);
+            if (stored == null) {
+                throw new IllegalStateException("Idempotency key " + key.key() + " is claimed but not stored");
+            }
+            databaseReplays.increment();
+            cache.put(key, stored);
+            return new Outcome(stored, null);
+        }
+        executed.increment();
+        Entry entry = new Entry(requestHash, encode(order));
+        cache.put(key, entry);
+        return new Outcome(entry, order);
+    }
+
+    private Entry find(int shard, Key key) {
+        List<Entry> rows = shardRouter.inTransaction(shard, true, () -> jdbcTemplate.query(
+                "select request_hash, response from order_idempotency_keys "
+                        + "where customer_id = ? and idempotency_key = ? and created_at >= ? and response is not null",
+                (row, rowNum) -> new Entry(row.getString("request_hash"), row.getString("response")),
+                key.customerId(), key.key(), cutoff()));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private Result replay(Key key, Entry entry, String requestHash) {
+        if (!entry.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReuseException(
+                    "Idempotency-Key " + key.key() + " was already used with a different request");
+        }
+        try {
+            return new Result(objectMapper.readValue(entry.response(), OrderResponse.class), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for idempotency key " + key.key() + " is unreadable", e);
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private LocalDateTime cutoff() {
+        return LocalDateTime.now().minus(ttl);
+    }
+
+    private String encode(OrderResponse order) {
+        try {
+            return objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Order #" + order.getId() + " response is not serializable", e);
+        }
+    }
+
+    private String hash(CreateOrderRequest request) {
+        try {
+            byte[] canonical = objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(canonical));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Order request cannot be fingerprinted", e);
+        }
+    }
+}
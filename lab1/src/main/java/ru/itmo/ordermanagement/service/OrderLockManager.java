@@ -0,0 +1,125 @@
+package ru.itmo.ordermanagement.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.itmo.ordermanagement.exception.OrderLockTimeoutException;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes transitions of the same order inside this JVM.
+ * <p>
+ * Each order id gets its own fair lock that lives only while someone holds or waits for it,
+ * so unrelated orders never share a lock. A lock is taken before the transition's transaction
+ * starts and released once that transaction has completed: the next transition of the order
+ * always reads the committed row, and a request waiting for a busy order does not hold a pooled
+ * connection while it waits.
+ */
+@Component
+public class OrderLockManager {
+
+    private final ConcurrentHashMap<Long, LockEntry> locks = new ConcurrentHashMap<>();
+    private final long timeoutMs;
+    private final Counter acquired;
+    private final Counter contended;
+    private final Counter timeouts;
+    private final Timer waitTimer;
+
+    public OrderLockManager(MeterRegistry meterRegistry,
+                            @Value("${app.order-locks.timeout-ms:5000}") long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        this.acquired = meterRegistry.counter("order.lock.acquisitions", "result", "acquired");
+        this.timeouts = meterRegistry.counter("order.lock.acquisitions", "result", "timeout");
+        this.contended = meterRegistry.counter("order.lock.contended");
+        this.waitTimer = meterRegistry.timer("order.lock.wait");
+        Gauge.builder("order.lock.active", locks, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code work}, which starts and completes its own transaction, while holding the order's lock.
+     *
+     * @throws OrderLockTimeoutException if the order stays locked longer than the configured timeout
+     * @throws IllegalStateException     if called inside a transaction
+     */
+    public <T> T callLocked(Long orderId, Supplier<T> work) {
+        return callLocked(List.of(orderId), work);
+    }
+
+    /**
+     * Same as {@link #callLocked(Long, Supplier)} for several orders, locked in ascending id order so
+     * that two multi-order transitions can't deadlock each other.
+     */
+    public <T> T callLocked(Collection<Long> orderIds, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Orders " + orderIds + " must be locked before the transaction starts");
+        }
+        List<Long> ids = orderIds.stream().distinct().sorted().toList();
+        Deque<LockEntry> held = new ArrayDeque<>(ids.size());
+        try {
+            for (Long orderId : ids) {
+                held.push(acquire(orderId));
+            }
+            return work.get();
+        } finally {
+            while (!held.isEmpty()) {
+                LockEntry entry = held.pop();
+                entry.lock.unlock();
+                release(entry.orderId);
+            }
+        }
+    }
+
+    private LockEntry acquire(Long orderId) {
+        LockEntry entry = locks.compute(orderId, (id, current) -> {
+            LockEntry e = current != null ? current : new LockEntry(id);
+            e.users++;
+            return e;
+        });
+        if (entry.lock.isLocked() && !entry.lock.isHeldByCurrentThread()) {
+            contended.increment();
+        }
+        long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = entry.lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            locked = false;
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!locked) {
+            release(orderId);
+            timeouts.increment();
+            throw new OrderLockTimeoutException(
+                    "Order #" + orderId + " is being modified by another request, retry later");
+        }
+        acquired.increment();
+        return entry;
+    }
+
+    private void release(Long orderId) {
+        locks.computeIfPresent(orderId, (id, e) -> --e.users == 0 ? null : e);
+    }
+
+    private static final class LockEntry {
+        private final Long orderId;
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private int users;
+
+        private LockEntry(Long orderId) {
+            this.orderId = orderId;
+        }
+    }
+}
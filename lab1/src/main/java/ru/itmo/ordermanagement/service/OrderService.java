@@ -2,17 +2,37 @@ package ru.itmo.ordermanagement.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.itmo.ordermanagement.config.ReadWriteRoutingDataSource;
+import ru.itmo.ordermanagement.config.ShardRouter;
 import ru.itmo.ordermanagement.dto.*;
+import ru.itmo.ordermanagement.event.OrderEventBus;
 import ru.itmo.ordermanagement.exception.InvalidOrderStateException;
+import ru.itmo.ordermanagement.exception.OrderLockTimeoutException;
 import ru.itmo.ordermanagement.exception.ResourceNotFoundException;
 import ru.itmo.ordermanagement.model.entity.*;
 import ru.itmo.ordermanagement.model.enums.OrderStatus;
+import ru.itmo.ordermanagement.model.value.Money;
 import ru.itmo.ordermanagement.repository.*;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,11 +43,36 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final CustomerRepository customerRepository;
     private final SellerRepository sellerRepository;
-    private final CourierRepository courierRepository;
+    private final CourierService courierService;
     private final NotificationService notificationService;
+    private final OrderSnapshotCache orderSnapshotCache;
+    private final OrderLockManager orderLockManager;
+    private final SellerAdmissionControl sellerAdmissionControl;
+    private final ProductHeavyHitters productHeavyHitters;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderEventBus orderEventBus;
+    private final ShardRouter shardRouter;
+    private final PartitionBounds partitionBounds;
 
     @Transactional
     public OrderResponse createOrder(CreateOrderRequest request) {
+        shardRouter.bindSeller(request.getSellerId());
+        sellerAdmissionControl.admit(request.getSellerId());
+        return insertOrder(request);
+    }
+
+    /**
+     * Creates an order that was already admitted in a group-commit batch which then rolled back, see
+     * {@link OrderGroupCommit}; it takes the seller's pending slot again but no rate-limit token.
+     */
+    @Transactional
+    public OrderResponse createAdmittedOrder(CreateOrderRequest request) {
+        shardRouter.bindSeller(request.getSellerId());
+        sellerAdmissionControl.holdPendingSlot(request.getSellerId());
+        return insertOrder(request);
+    }
+
+    private OrderResponse insertOrder(CreateOrderRequest request) {
         Customer customer = customerRepository.findById(request.getCustomerId())
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Customer not found: " + request.getCustomerId()));
@@ -36,6 +81,20 @@ public class OrderService {
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Seller not found: " + request.getSellerId()));
 
+        Order order = orderRepository.save(newOrder(customer, seller, request));
+        productHeavyHitters.recordAfterCommit(seller.getId(), order.getItems());
+
+        notificationService.notifySellerNewOrder(order);
+        notificationService.notifyCustomerStatusChanged(order);
+
+        log.info("Order #{} created, status: IN_PROCESSING", order.getId());
+        return snapshot(order);
+    }
+
+    /**
+     * A new {@code IN_PROCESSING} order for {@code request}, not yet saved.
+     */
+    Order newOrder(Customer customer, Seller seller, CreateOrderRequest request) {
         Order order = Order.builder()
                 .customer(customer)
                 .seller(seller)
@@ -46,80 +105,110 @@ public class OrderService {
             OrderItem item = OrderItem.builder()
                     .productName(itemDto.getProductName())
                     .quantity(itemDto.getQuantity())
-                    .price(itemDto.getPrice())
+                    .price(Money.fromDecimal(itemDto.getPrice()))
                     .build();
             order.addItem(item);
         }
         order.recalculateTotal();
         order.setSellerNotifiedAt(LocalDateTime.now());
-
-        order = orderRepository.save(order);
-
-        notificationService.notifySellerNewOrder(order);
-        notificationService.notifyCustomerStatusChanged(order);
-
-        log.info("Order #{} created, status: IN_PROCESSING", order.getId());
-        return toResponse(order);
+        return order;
     }
 
-    @Transactional
     public OrderResponse reviewOrder(Long orderId, ReviewOrderRequest request) {
-        Order order = findOrderOrThrow(orderId);
-        assertStatus(order, OrderStatus.IN_PROCESSING);
-
-        if (request.isCanFulfill()) {
-            order.setStatus(OrderStatus.COOKING);
-            order = orderRepository.save(order);
-            notificationService.notifyCustomerStatusChanged(order);
-            log.info("Order #{} accepted by seller, status: COOKING", orderId);
-        } else {
-            order.setStatus(OrderStatus.CANCELLED);
-            order.setCancelledAt(LocalDateTime.now());
-            order.setCancelReason(request.getCancelReason() != null
-                    ? request.getCancelReason()
-                    : "Продавец не может выполнить заказ");
-            order = orderRepository.save(order);
-            notificationService.notifyCustomerStatusChanged(order);
-            log.info("Order #{} cancelled by seller: {}", orderId, order.getCancelReason());
-        }
-
-        return toResponse(order);
+        return inLockedTransaction(orderId, () -> {
+            shardRouter.bindId(orderId);
+            Order order = findOrderOrThrow(orderId);
+            assertStatus(order, OrderStatus.IN_PROCESSING);
+            sellerAdmissionControl.releaseAfterCommit(order.getSeller().getId());
+
+            if (request.isCanFulfill()) {
+                order.setStatus(OrderStatus.COOKING);
+                order.setReviewedAt(LocalDateTime.now());
+                order = orderRepository.save(order);
+                notificationService.notifyCustomerStatusChanged(order);
+                log.info("Order #{} accepted by seller, status: COOKING", orderId);
+            } else {
+                order.setStatus(OrderStatus.CANCELLED);
+                order.setCancelledAt(LocalDateTime.now());
+                order.setCancelReason(request.getCancelReason() != null
+                        ? request.getCancelReason()
+                        : "Продавец не может выполнить заказ");
+                order = orderRepository.save(order);
+                notificationService.notifyCustomerStatusChanged(order);
+                log.info("Order #{} cancelled by seller: {}", orderId, order.getCancelReason());
+            }
+
+            return snapshot(order);
+        });
     }
 
-    @Transactional
     public OrderResponse assembleOrder(Long orderId) {
-        Order order = findOrderOrThrow(orderId);
-        assertStatus(order, OrderStatus.COOKING);
+        return inLockedTransaction(orderId, () -> {
+            shardRouter.bindId(orderId);
+            Order order = findOrderOrThrow(orderId);
+            assertStatus(order, OrderStatus.COOKING);
 
-        order.setStatus(OrderStatus.ASSEMBLING);
-        order = orderRepository.save(order);
+            order.setStatus(OrderStatus.ASSEMBLING);
+            order.setAssembledAt(LocalDateTime.now());
+            order = orderRepository.save(order);
 
-        notificationService.notifyCustomerStatusChanged(order);
-        log.info("Order #{} assembled, status: ASSEMBLING", orderId);
-        return toResponse(order);
+            notificationService.notifyCustomerStatusChanged(order);
+            log.info("Order #{} assembled, status: ASSEMBLING", orderId);
+            return snapshot(order);
+        });
     }
 
-    @Transactional
     public OrderResponse searchCourier(Long orderId) {
-        Order order = findOrderOrThrow(orderId);
-        assertStatus(order, OrderStatus.ASSEMBLING);
+        return inLockedTransaction(orderId, () -> {
+            shardRouter.bindId(orderId);
+            Order order = findOrderOrThrow(orderId);
+            assertStatus(order, OrderStatus.ASSEMBLING);
 
-        order.setStatus(OrderStatus.SEARCHING_COURIER);
-        order = orderRepository.save(order);
+            order.setStatus(OrderStatus.SEARCHING_COURIER);
+            order.setCourierSearchStartedAt(LocalDateTime.now());
+            order = orderRepository.save(order);
+
+            final Order savedOrder = order;
+            courierService.claimCourierFor(order.getSeller()).ifPresent(courier -> {
+                assignCourier(savedOrder, courier);
+            });
 
-        final Order savedOrder = order;
-        courierRepository.findFirstByAvailableTrue().ifPresent(courier -> {
-            assignCourier(savedOrder, courier);
+            return snapshot(savedOrder);
         });
+    }
 
-        return toResponse(orderRepository.findById(orderId).orElseThrow());
+    public BulkOrderResponse bulkReviewOrders(BulkReviewRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        if (request.isCanFulfill()) {
+            return applyBulk(request.getOrderIds(), OrderStatus.IN_PROCESSING,
+                    (ids, createdAfter) -> orderRepository.acceptByIdIn(ids, createdAfter, now),
+                    this::afterBulkReview);
+        }
+        String reason = request.getCancelReason() != null
+                ? request.getCancelReason()
+                : "Продавец не может выполнить заказ";
+        return applyBulk(request.getOrderIds(), OrderStatus.IN_PROCESSING,
+                (ids, createdAfter) -> orderRepository.cancelByIdIn(ids, createdAfter, reason, now),
+                this::afterBulkReview);
+    }
+
+    public BulkOrderResponse bulkAssembleOrders(BulkOrderRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        return applyBulk(request.getOrderIds(), OrderStatus.COOKING,
+                (ids, createdAfter) -> orderRepository.assembleByIdIn(ids, createdAfter, now),
+                notificationService::notifyCustomersStatusChanged);
+    }
+
+    public BulkOrderResponse bulkSearchCourier(BulkOrderRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        return applyBulk(request.getOrderIds(), OrderStatus.ASSEMBLING,
+                (ids, createdAfter) -> orderRepository.startCourierSearchByIdIn(ids, createdAfter, now),
+                applied -> applied.forEach(order -> courierService.claimCourierFor(order.getSeller())
+                        .ifPresent(courier -> assignCourier(order, courier))));
     }
 
     @Transactional
     public void assignCourier(Order order, Courier courier) {
-        courier.setAvailable(false);
-        courierRepository.save(courier);
-
         order.setCourier(courier);
         order.setStatus(OrderStatus.AWAITING_COURIER);
         order.setCourierAssignedAt(LocalDateTime.now());
@@ -133,6 +222,7 @@ public class OrderService {
 
     @Transactional
     public OrderResponse courierAcceptDelivery(Long orderId, Long courierId) {
+        shardRouter.bindId(orderId);
         Order order = findOrderOrThrow(orderId);
         assertStatus(order, OrderStatus.AWAITING_COURIER);
 
@@ -145,96 +235,315 @@ public class OrderService {
         return toResponse(order);
     }
 
-    @Transactional
     public OrderResponse courierArrived(Long orderId, Long courierId) {
-        Order order = findOrderOrThrow(orderId);
-
-        if (order.getStatus() != OrderStatus.AWAITING_COURIER
-                && order.getStatus() != OrderStatus.DELAYED) {
-            throw new InvalidOrderStateException(
-                    "Order #" + orderId + " is not in AWAITING_COURIER or DELAYED status");
-        }
-
-        if (order.getCourier() == null || !order.getCourier().getId().equals(courierId)) {
-            throw new InvalidOrderStateException(
-                    "Courier #" + courierId + " is not assigned to order #" + orderId);
-        }
-
-        order.setCourierArrivedAt(LocalDateTime.now());
-        order.setStatus(OrderStatus.IN_DELIVERY);
-        order = orderRepository.save(order);
+        return inLockedTransaction(orderId, () -> {
+            shardRouter.bindId(orderId);
+            Order order = findOrderOrThrow(orderId);
+
+            if (order.getStatus() != OrderStatus.AWAITING_COURIER
+                    && order.getStatus() != OrderStatus.DELAYED) {
+                throw new InvalidOrderStateException(
+                        "Order #" + orderId + " is not in AWAITING_COURIER or DELAYED status");
+            }
+
+            if (order.getCourier() == null || !order.getCourier().getId().equals(courierId)) {
+                throw new InvalidOrderStateException(
+                        "Courier #" + courierId + " is not assigned to order #" + orderId);
+            }
+
+            order.setCourierArrivedAt(LocalDateTime.now());
+            order.setStatus(OrderStatus.IN_DELIVERY);
+            order = orderRepository.save(order);
 
-        notificationService.notifyCustomerStatusChanged(order);
-        log.info("Order #{}: courier arrived, status: IN_DELIVERY", orderId);
-        return toResponse(order);
+            notificationService.notifyCustomerStatusChanged(order);
+            log.info("Order #{}: courier arrived, status: IN_DELIVERY", orderId);
+            return snapshot(order);
+        });
     }
 
+    @Transactional(readOnly = true)
     public OrderResponse getOrder(Long orderId) {
-        return toResponse(findOrderOrThrow(orderId));
+        shardRouter.bindId(orderId);
+        return orderSnapshotCache.get(orderId).orElseGet(() -> {
+            // the snapshot outlives this read, so it must not come from a lagging replica
+            ReadWriteRoutingDataSource.pinTransactionToPrimary();
+            Order order = findOrderOrThrow(orderId);
+            OrderResponse response = toResponse(order);
+            orderSnapshotCache.put(order.getId(), order.getVersion(), response);
+            return response;
+        });
     }
 
     public List<OrderResponse> getOrdersByCustomer(Long customerId) {
-        return orderRepository.findByCustomerId(customerId).stream()
-                .map(this::toResponse).collect(Collectors.toList());
+        return shardRouter.queryAllShards(() -> orderRepository.findByCustomerId(customerId).stream()
+                .map(this::toResponse).collect(Collectors.toList()));
     }
 
+    @Transactional(readOnly = true)
     public List<OrderResponse> getOrdersBySeller(Long sellerId) {
+        shardRouter.bindSeller(sellerId);
         return orderRepository.findBySellerId(sellerId).stream()
                 .map(this::toResponse).collect(Collectors.toList());
     }
 
     public List<OrderResponse> getOrdersByCourier(Long courierId) {
-        return orderRepository.findByCourierId(courierId).stream()
-                .map(this::toResponse).collect(Collectors.toList());
+        return shardRouter.queryAllShards(() -> orderRepository.findByCourierId(courierId).stream()
+                .map(this::toResponse).collect(Collectors.toList()));
     }
 
     public List<OrderResponse> getOrdersByStatus(OrderStatus status) {
-        return orderRepository.findByStatus(status).stream()
-                .map(this::toResponse).collect(Collectors.toList());
+        return shardRouter.queryAllShards(() -> orderRepository.findByStatus(status).stream()
+                .map(this::toResponse).collect(Collectors.toList()));
     }
 
     public List<OrderResponse> getAllOrders() {
-        return orderRepository.findAll().stream()
-                .map(this::toResponse).collect(Collectors.toList());
+        return shardRouter.queryAllShards(() -> orderRepository.findAll().stream()
+                .map(this::toResponse).collect(Collectors.toList()));
     }
 
-    @Transactional
-    public void cancelOverdueOrders(int timeoutMinutes) {
-        LocalDateTime deadline = LocalDateTime.now().minusMinutes(timeoutMinutes);
-        List<Order> overdueOrders = orderRepository
-                .findByStatusAndSellerNotifiedAtBefore(OrderStatus.IN_PROCESSING, deadline);
+    /**
+     * Page of the change feed of one shard: every shard numbers its changes on its own. Changes of
+     * transactions that were still running when the page was read are left for the next page. Read
+     * on the primary: the bound compares {@code change_seq} with transaction ids of the primary,
+     * which mean nothing on a logical replica.
+     */
+    @Transactional(readOnly = true)
+    public OrderChangesResponse getOrderChanges(int shard, long since, int limit) {
+        ReadWriteRoutingDataSource.pinTransactionToPrimary();
+        shardRouter.bind(shard);
+        long settledBound = orderRepository.findSettledChangeSeqBound();
+        List<Order> changed = orderRepository.findByChangeSeqGreaterThanAndChangeSeqLessThanOrderByChangeSeqAsc(
+                since, settledBound, Limit.of(limit + 1));
+
+        List<OrderResponse> orders = new ArrayList<>();
+        long cursor = since;
+        boolean hasMore = false;
+        for (Order order : changed) {
+            if (orders.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            orders.add(toResponse(order));
+            cursor = order.getChangeSeq();
+        }
+        return OrderChangesResponse.builder()
+                .orders(orders)
+                .nextCursor(cursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Cancels orders the seller has not reviewed for {@code timeoutMinutes}; only orders notified to the
+     * seller in the last {@code windowDays} are looked at, whenever they were created.
+     */
+    public void cancelOverdueOrders(int timeoutMinutes, int windowDays, SweepShard shard) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime deadline = now.minusMinutes(timeoutMinutes);
+        List<Long> overdueOrderIds = orderRepository.findIdsByStatusAndSellerNotifiedAtBefore(
+                OrderStatus.IN_PROCESSING, deadline, now.minusDays(windowDays), shard.count(), shard.index());
+
+        for (Long orderId : overdueOrderIds) {
+            runSweepStep(orderId, () -> cancelOverdueOrder(orderId, deadline, timeoutMinutes));
+        }
+    }
 
-        for (Order order : overdueOrders) {
-            order.setStatus(OrderStatus.CANCELLED);
-            order.setCancelledAt(LocalDateTime.now());
-            order.setCancelReason("Продавец не реагирует в течение " + timeoutMinutes + " минут");
-            orderRepository.save(order);
+    public void markDelayedOrders(int timeoutMinutes, int windowDays, SweepShard shard) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime deadline = now.minusMinutes(timeoutMinutes);
+        List<Long> delayedOrderIds = orderRepository.findIdsByStatusAndCourierAssignedAtBefore(
+                OrderStatus.AWAITING_COURIER, deadline, now.minusDays(windowDays), shard.count(), shard.index());
 
-            notificationService.notifyCustomerStatusChanged(order);
-            log.warn("Order #{} auto-cancelled: seller timeout ({} min)", order.getId(), timeoutMinutes);
+        for (Long orderId : delayedOrderIds) {
+            runSweepStep(orderId, () -> markOrderDelayed(orderId, deadline, timeoutMinutes));
         }
     }
 
-    @Transactional
-    public void markDelayedOrders(int timeoutMinutes) {
-        LocalDateTime deadline = LocalDateTime.now().minusMinutes(timeoutMinutes);
-        List<Order> delayedOrders = orderRepository
-                .findByStatusAndCourierAssignedAtBefore(OrderStatus.AWAITING_COURIER, deadline);
+    private void cancelOverdueOrder(Long orderId, LocalDateTime deadline, int timeoutMinutes) {
+        Order order = findOrderOrThrow(orderId);
+        if (order.getStatus() != OrderStatus.IN_PROCESSING || !order.getSellerNotifiedAt().isBefore(deadline)) {
+            return;
+        }
 
-        for (Order order : delayedOrders) {
-            order.setStatus(OrderStatus.DELAYED);
-            orderRepository.save(order);
+        order.setStatus(OrderStatus.CANCELLED);
+        order.setCancelledAt(LocalDateTime.now());
+        order.setCancelReason("Продавец не реагирует в течение " + timeoutMinutes + " минут");
+        order = orderRepository.save(order);
+        sellerAdmissionControl.releaseAfterCommit(order.getSeller().getId());
 
-            notificationService.notifyCustomerStatusChanged(order);
-            log.warn("Order #{} marked as DELAYED: courier timeout ({} min)", order.getId(), timeoutMinutes);
+        notificationService.notifyCustomerStatusChanged(order);
+        invalidateSnapshot(order);
+        log.warn("Order #{} auto-cancelled: seller timeout ({} min)", orderId, timeoutMinutes);
+    }
+
+    private void markOrderDelayed(Long orderId, LocalDateTime deadline, int timeoutMinutes) {
+        Order order = findOrderOrThrow(orderId);
+        if (order.getStatus() != OrderStatus.AWAITING_COURIER || !order.getCourierAssignedAt().isBefore(deadline)) {
+            return;
         }
+
+        order.setStatus(OrderStatus.DELAYED);
+        order = orderRepository.save(order);
+
+        notificationService.notifyCustomerStatusChanged(order);
+        invalidateSnapshot(order);
+        log.warn("Order #{} marked as DELAYED: courier timeout ({} min)", orderId, timeoutMinutes);
+    }
+
+    private void runSweepStep(Long orderId, Runnable step) {
+        try {
+            inLockedTransaction(orderId, () -> {
+                step.run();
+                return null;
+            });
+        } catch (OrderLockTimeoutException | OptimisticLockingFailureException e) {
+            log.warn("Order #{} skipped by timer sweep, it is being modified concurrently: {}",
+                    orderId, e.getMessage());
+        }
+    }
+
+    /**
+     * Applies one status transition to many orders, in one transaction per shard the orders live on.
+     * Every requested id that is not moved is reported as a conflict.
+     */
+    private BulkOrderResponse applyBulk(List<Long> orderIds, OrderStatus expected,
+                                        BiConsumer<List<Long>, LocalDateTime> update,
+                                        Consumer<List<Order>> afterUpdate) {
+        List<Long> ids = orderIds.stream().distinct().toList();
+        Map<Integer, List<Long>> idsByShard = ids.stream().collect(
+                Collectors.groupingBy(shardRouter::shardOfId, LinkedHashMap::new, Collectors.toList()));
+
+        Map<Long, BulkOrderResult> resultsById = new HashMap<>();
+        idsByShard.forEach((shard, shardIds) -> orderLockManager.callLocked(shardIds,
+                        () -> shardRouter.inTransaction(shard, false,
+                                () -> applyBulkOnShard(shardIds, expected, update, afterUpdate)))
+                .forEach(result -> resultsById.put(result.getOrderId(), result)));
+
+        List<BulkOrderResult> results = ids.stream().map(resultsById::get).toList();
+        int applied = (int) results.stream().filter(BulkOrderResult::isApplied).count();
+        log.info("Bulk transition from {}: {} applied, {} conflicted",
+                expected, applied, ids.size() - applied);
+        return BulkOrderResponse.builder()
+                .applied(applied)
+                .conflicted(ids.size() - applied)
+                .results(results)
+                .build();
+    }
+
+    /**
+     * The orders still in {@code expected} are row-locked and moved with a single conditional update,
+     * then {@code afterUpdate} runs for them as a batch. The caller holds the orders' locks. Once the
+     * orders are read, the oldest {@code createdAt} among them bounds the partitions the lock, the update
+     * and the re-read search.
+     */
+    private List<BulkOrderResult> applyBulkOnShard(List<Long> ids, OrderStatus expected,
+                                                   BiConsumer<List<Long>, LocalDateTime> update,
+                                                   Consumer<List<Order>> afterUpdate) {
+        List<Order> found = findOrders(ids);
+        List<Long> foundIds = found.stream().map(Order::getId).toList();
+        LocalDateTime createdAfter = found.stream().map(Order::getCreatedAt)
+                .min(Comparator.naturalOrder()).orElse(null);
+        List<Long> eligibleIds = found.isEmpty()
+                ? List.of()
+                : orderRepository.lockIdsByIdInAndStatus(foundIds, createdAfter, expected.name());
+        if (!eligibleIds.isEmpty()) {
+            update.accept(eligibleIds, createdAfter);
+            // the update cleared the persistence context
+            found = orderRepository.findByIdInAndCreatedAtGreaterThanEqual(foundIds, createdAfter);
+        }
+        Map<Long, Order> orders = found.stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        List<Order> applied = eligibleIds.stream().map(orders::get).toList();
+        if (!applied.isEmpty()) {
+            afterUpdate.accept(applied);
+            applied.forEach(this::invalidateSnapshot);
+        }
+
+        Set<Long> appliedIds = new HashSet<>(eligibleIds);
+        List<BulkOrderResult> results = new ArrayList<>(ids.size());
+        for (Long orderId : ids) {
+            Order order = orders.get(orderId);
+            BulkOrderResult.BulkOrderResultBuilder result = BulkOrderResult.builder()
+                    .orderId(orderId)
+                    .applied(appliedIds.contains(orderId))
+                    .status(order != null ? order.getStatus() : null);
+            if (order == null) {
+                result.message("Order not found: " + orderId);
+            } else if (!appliedIds.contains(orderId)) {
+                result.message(String.format("Order #%d has status %s, expected %s",
+                        orderId, order.getStatus(), expected));
+            }
+            results.add(result.build());
+        }
+        return results;
+    }
+
+    private void afterBulkReview(List<Order> reviewed) {
+        reviewed.forEach(order -> sellerAdmissionControl.releaseAfterCommit(order.getSeller().getId()));
+        notificationService.notifyCustomersStatusChanged(reviewed);
+    }
+
+    /**
+     * Runs one transition of {@code orderId} in a transaction of its own, holding the order's lock from
+     * before the transaction starts until it has completed, see {@link OrderLockManager}.
+     */
+    private <T> T inLockedTransaction(Long orderId, Supplier<T> transition) {
+        return orderLockManager.callLocked(orderId, () -> transactionTemplate.execute(status -> transition.get()));
+    }
+
+    private OrderResponse snapshot(Order order) {
+        orderRepository.flush();
+        OrderResponse response = toResponse(order);
+        orderSnapshotCache.putAfterCommit(order.getId(), order.getVersion(), response);
+        orderEventBus.publishAfterCommit(order);
+        return response;
     }
 
+    /**
+     * Registers the after-commit work of an order that {@link OrderGroupCommit} wrote itself, as
+     * {@link #createOrder} does for its order, and returns its response.
+     */
+    OrderResponse registerCreated(Order order) {
+        productHeavyHitters.recordAfterCommit(order.getSeller().getId(), order.getItems());
+        return snapshot(order);
+    }
+
+    private void invalidateSnapshot(Order order) {
+        orderRepository.flush();
+        orderSnapshotCache.invalidate(order.getId(), order.getVersion());
+        orderEventBus.publishAfterCommit(order);
+    }
+
+    /**
+     * Looks in the partitions from the order's month on first, see {@link PartitionBounds}, and in all of
+     * them only if it is not there.
+     */
     private Order findOrderOrThrow(Long orderId) {
-        return orderRepository.findById(orderId)
+        return partitionBounds.createdAtLowerBound(PartitionBounds.ORDERS, orderId)
+                .flatMap(createdAfter -> orderRepository.findByIdAndCreatedAtGreaterThanEqual(orderId, createdAfter))
+                .or(() -> orderRepository.findById(orderId))
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found: " + orderId));
     }
 
+    /**
+     * The orders of {@code ids} that exist, looked up as in {@link #findOrderOrThrow} with the bound of the
+     * smallest id.
+     */
+    private List<Order> findOrders(List<Long> ids) {
+        Optional<LocalDateTime> createdAfter = ids.stream().min(Comparator.naturalOrder())
+                .flatMap(smallestId -> partitionBounds.createdAtLowerBound(PartitionBounds.ORDERS, smallestId));
+        if (createdAfter.isEmpty()) {
+            return orderRepository.findByIdIn(ids);
+        }
+        List<Order> found = new ArrayList<>(
+                orderRepository.findByIdInAndCreatedAtGreaterThanEqual(ids, createdAfter.get()));
+        if (found.size() < ids.size()) {
+            Set<Long> foundIds = found.stream().map(Order::getId).collect(Collectors.toSet());
+            found.addAll(orderRepository.findByIdIn(ids.stream().filter(id -> !foundIds.contains(id)).toList()));
+        }
+        return found;
+    }
+
     private void assertStatus(Order order, OrderStatus expected) {
         if (order.getStatus() != expected) {
             throw new InvalidOrderStateException(
@@ -253,13 +562,13 @@ public class OrderService {
                 .courierId(order.getCourier() != null ? order.getCourier().getId() : null)
                 .courierName(order.getCourier() != null ? order.getCourier().getName() : null)
                 .status(order.getStatus())
-                .totalPrice(order.getTotalPrice())
+                .totalPrice(order.getTotalPrice().toDecimal())
                 .items(order.getItems().stream()
                         .map(i -> OrderItemResponse.builder()
                                 .id(i.getId())
                                 .productName(i.getProductName())
                                 .quantity(i.getQuantity())
-                                .price(i.getPrice())
+                                .price(i.getPrice().toDecimal())
                                 .build())
                         .collect(Collectors.toList()))
                 .createdAt(order.getCreatedAt())
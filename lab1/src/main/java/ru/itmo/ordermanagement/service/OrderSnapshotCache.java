@@ -0,0 +1,165 @@
+package ru.itmo.ordermanagement.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.itmo.ordermanagement.dto.OrderResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded near cache of serialized {@link OrderResponse} snapshots keyed by order id.
+ * <p>
+ * Every entry carries the {@code orders.version} it was built from. A write never replaces a
+ * newer entry, and a transition leaves a payload-less tombstone with its new version before
+ * commit, so a reader that loaded the previous row can't put it back afterwards. That fence only
+ * sees transitions of this instance, so entries also expire {@code app.order-cache.ttl-ms} after
+ * they were written: a transition committed by another instance is served at most that late.
+ */
+@Component
+@Slf4j
+public class OrderSnapshotCache {
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Cache<Long, Snapshot> cache;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public OrderSnapshotCache(ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.order-cache.enabled:true}") boolean enabled,
+                              @Value("${app.order-cache.max-size:10000}") long maxSize,
+                              @Value("${app.order-cache.ttl-ms:2000}") long ttlMs) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.hits = meterRegistry.counter("order.cache.gets", "result", "hit");
+        this.misses = meterRegistry.counter("order.cache.gets", "result", "miss");
+        this.evictions = meterRegistry.counter("order.cache.evictions");
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .evictionListener((Long key, Snapshot value, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+        Gauge.builder("order.cache.size", cache, Cache::estimatedSize).register(meterRegistry);
+        Gauge.builder("order.cache.hit.ratio", this, OrderSnapshotCache::hitRatio).register(meterRegistry);
+    }
+
+    public Optional<OrderResponse> get(Long orderId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Snapshot snapshot = cache.asMap().get(orderId);
+        if (snapshot == null || snapshot.payload() == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        try {
+            OrderResponse response = objectMapper.readValue(snapshot.payload(), OrderResponse.class);
+            hits.increment();
+            return Optional.of(response);
+        } catch (IOException e) {
+            log.warn("Dropping unreadable snapshot of order #{}: {}", orderId, e.getMessage());
+            cache.asMap().remove(orderId, snapshot);
+            misses.increment();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores a snapshot read from the database, unless the cache already knows a newer version.
+     */
+    public void put(Long orderId, long version, OrderResponse response) {
+        if (!enabled) {
+            return;
+        }
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            log.warn("Cannot serialize snapshot of order #{}: {}", orderId, e.getMessage());
+            return;
+        }
+        Snapshot snapshot = new Snapshot(version, payload);
+        cache.asMap().merge(orderId, snapshot,
+                (current, candidate) -> current.version() > candidate.version() ? current : candidate);
+    }
+
+    /**
+     * Called from inside a transition after its flush. Fences older readers off immediately and
+     * publishes the new snapshot once the transaction has committed.
+     */
+    public void putAfterCommit(Long orderId, long version, OrderResponse response) {
+        if (!enabled) {
+            return;
+        }
+        Snapshot tombstone = fence(orderId, version);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(orderId, version, response);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    put(orderId, version, response);
+                } else {
+                    cache.asMap().remove(orderId, tombstone);
+                }
+            }
+        });
+    }
+
+    /**
+     * Called from inside a transition after its flush when there is no response to publish
+     * (timer sweeps): the next read rebuilds the entry from the committed row.
+     */
+    public void invalidate(Long orderId, long version) {
+        if (!enabled) {
+            return;
+        }
+        Snapshot tombstone = fence(orderId, version);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        cache.asMap().remove(orderId, tombstone);
+                    }
+                }
+            });
+        }
+    }
+
+    private Snapshot fence(Long orderId, long version) {
+        Snapshot tombstone = new Snapshot(version, null);
+        cache.asMap().merge(orderId, tombstone,
+                (current, candidate) -> current.version() > candidate.version() ? current : candidate);
+        return tombstone;
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+
+    private record Snapshot(long version, byte[] payload) {
+    }
+}
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import ru.itmo.ordermanagement.config.ShardRouter;
 
 @Component
 @RequiredArgsConstructor
@@ -12,6 +13,8 @@ import org.springframework.stereotype.Component;
 public class OrderTimerScheduler {
 
     private final OrderService orderService;
+    private final SweepShardCoordinator sweepShardCoordinator;
+    private final ShardRouter shardRouter;
 
     @Value("${app.seller-reaction-timeout-minutes:10}")
     private int sellerTimeoutMinutes;
@@ -19,15 +22,20 @@ public class OrderTimerScheduler {
     @Value("${app.courier-arrival-timeout-minutes:30}")
     private int courierTimeoutMinutes;
 
-    @Scheduled(fixedRate = 60_000)
+    @Value("${app.timer-sweep-window-days:7}")
+    private int sweepWindowDays;
+
+    @Scheduled(fixedRateString = "${app.timer-check-interval-ms:60000}")
     public void checkSellerTimeout() {
         log.debug("Checking for seller reaction timeout ({} min)...", sellerTimeoutMinutes);
-        orderService.cancelOverdueOrders(sellerTimeoutMinutes);
+        shardRouter.forEachShard(database -> sweepShardCoordinator.runSharded(SweepShardCoordinator.SELLER_TIMEOUT,
+                shard -> orderService.cancelOverdueOrders(sellerTimeoutMinutes, sweepWindowDays, shard)));
     }
 
-    @Scheduled(fixedRate = 60_000)
+    @Scheduled(fixedRateString = "${app.timer-check-interval-ms:60000}")
     public void checkCourierTimeout() {
         log.debug("Checking for courier arrival timeout ({} min)...", courierTimeoutMinutes);
-        orderService.markDelayedOrders(courierTimeoutMinutes);
+        shardRouter.forEachShard(database -> sweepShardCoordinator.runSharded(SweepShardCoordinator.COURIER_TIMEOUT,
+                shard -> orderService.markDelayedOrders(courierTimeoutMinutes, sweepWindowDays, shard)));
     }
 }
@@ -0,0 +1,42 @@
+package ru.itmo.ordermanagement.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import ru.itmo.ordermanagement.event.OrderEventConsumer;
+import ru.itmo.ordermanagement.event.OrderStatusChanged;
+import ru.itmo.ordermanagement.model.enums.OrderStatus;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts committed transitions per target status and how long they took to reach the event bus
+ * consumers.
+ */
+@Component
+public class OrderTransitionMetrics implements OrderEventConsumer {
+
+    private final Map<OrderStatus, Counter> transitions = new EnumMap<>(OrderStatus.class);
+    private final Timer deliveryDelay;
+
+    public OrderTransitionMetrics(MeterRegistry meterRegistry) {
+        for (OrderStatus status : OrderStatus.values()) {
+            transitions.put(status, meterRegistry.counter("order.transitions", "status", status.name()));
+        }
+        this.deliveryDelay = meterRegistry.timer("event.bus.delivery");
+    }
+
+    @Override
+    public String consumerName() {
+        return "transition-metrics";
+    }
+
+    @Override
+    public void onEvent(OrderStatusChanged event, long sequence, boolean endOfBatch) {
+        transitions.get(event.getStatus()).increment();
+        deliveryDelay.record(System.currentTimeMillis() - event.getCommittedAtMillis(), TimeUnit.MILLISECONDS);
+    }
+}
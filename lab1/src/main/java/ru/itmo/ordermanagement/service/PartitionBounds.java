@@ -0,0 +1,52 @@
+package ru.itmo.ordermanagement.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.itmo.ordermanagement.config.ShardRouter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lower bounds on {@code created_at} for rows of the monthly partitioned tables that are looked up by id
+ * alone, so that such a lookup only searches the partitions from the row's month on.
+ * <p>
+ * Ids come from one sequence per table and shard and grow with time: a row whose id is at least the
+ * smallest id of a month got it after that month had begun. {@link PartitionMaintainer} records the
+ * smallest id of every month on each run. A row can still carry a {@code created_at} from just before
+ * the month its id points to (taken before the boundary, inserted after it), so a bounded lookup that
+ * finds nothing has to be retried without the bound.
+ */
+@Component
+@RequiredArgsConstructor
+public class PartitionBounds {
+
+    public static final String ORDERS = "orders";
+    public static final String NOTIFICATIONS = "notifications";
+
+    private final ShardRouter shardRouter;
+
+    /** Per table and shard: the smallest id of each month mapped to the month's first day. */
+    private final Map<String, Map<Integer, NavigableMap<Long, LocalDateTime>>> monthStarts = new ConcurrentHashMap<>();
+
+    /**
+     * Start of the month of the latest partition of {@code table} whose smallest id is not above {@code id},
+     * or empty while no such partition is known.
+     */
+    public Optional<LocalDateTime> createdAtLowerBound(String table, long id) {
+        NavigableMap<Long, LocalDateTime> starts = monthStarts.getOrDefault(table, Map.of())
+                .get(shardRouter.shardOfId(id));
+        if (starts == null) {
+            return Optional.empty();
+        }
+        Map.Entry<Long, LocalDateTime> floor = starts.floorEntry(id);
+        return floor != null ? Optional.of(floor.getValue()) : Optional.empty();
+    }
+
+    void update(String table, int shard, NavigableMap<Long, LocalDateTime> smallestIds) {
+        monthStarts.computeIfAbsent(table, t -> new ConcurrentHashMap<>()).put(shard, smallestIds);
+    }
+}
@@ -0,0 +1,223 @@
+package ru.itmo.ordermanagement.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.itmo.ordermanagement.config.ShardRouter;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of {@code orders} and {@code notifications} in step with the calendar,
+ * and the order id range partitions of {@code order_items} in step with {@code orders_id_seq} (see
+ * {@code schema.sql}), on every shard.
+ * <p>
+ * Partitions for the current month and {@code app.partitioning.premake-months} ahead are created in
+ * advance, since the tables have no default partition and an insert into a missing month fails; the
+ * same goes for the range of the next order id and {@code app.partitioning.premake-item-ranges} after it.
+ * With {@code app.partitioning.retention-months} set, whole months older than that are detached
+ * with {@code DETACH PARTITION ... CONCURRENTLY}, which does not block the live months, and dropped.
+ * An {@code order_items} range goes the same way once no order of it is left in {@code orders}, so
+ * dropping old data never deletes rows one by one. A table that is not partitioned yet (a database
+ * from before {@code partitioning-migration.sql}) is left alone.
+ * <p>
+ * Each run also hands the smallest id of every kept month to {@link PartitionBounds}.
+ */
+@Component
+@Slf4j
+public class PartitionMaintainer {
+
+    private static final List<String> TABLES = List.of(PartitionBounds.ORDERS, PartitionBounds.NOTIFICATIONS);
+    private static final String ORDER_ITEMS = "order_items";
+    private static final Pattern MONTH = Pattern.compile("_y(\\d{4})m(\\d{2})$");
+    private static final Pattern ITEM_RANGE = Pattern.compile("_o(\\d+)$");
+
+    private static final String PARTITIONED_SQL =
+            "select exists (select 1 from pg_partitioned_table where partrelid = to_regclass(?))";
+
+    private static final String CREATE_SQL = "select create_month_partition(?, ?)";
+
+    private static final String CREATE_ITEM_RANGES_SQL = "select create_order_items_partitions(?)";
+
+    /** Lowest order id still in {@code orders}, or the sequence position if there is none. */
+    private static final String OLDEST_ORDER_SQL =
+            "select coalesce(min(id), (select last_value from orders_id_seq)) from orders";
+
+    /**
+     * Tables named like the partitions of a parent: its partitions, including one whose concurrent detach
+     * was interrupted, and ones detached earlier but not dropped yet.
+     */
+    private static final String PARTITION_TABLES_SQL = "select c.relname, c.relispartition, "
+            + "coalesce(i.inhdetachpending, false) as detach_pending "
+            + "from pg_class c left join pg_inherits i on i.inhrelid = c.oid "
+            + "where c.relkind = 'r' and c.relnamespace = current_schema()::regnamespace and c.relname ~ ?";
+
+    private record PartitionTable(String name, boolean attached, boolean detachPending) {
+    }
+
+    private record MonthTable(PartitionTable table, YearMonth month) {
+    }
+
+    private record ItemRangeTable(PartitionTable table, long firstOrderId) {
+    }
+
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final PartitionBounds partitionBounds;
+    private final int premakeMonths;
+    private final int premakeItemRanges;
+    private final int retentionMonths;
+    private final Counter created;
+    private final Counter dropped;
+
+    public PartitionMaintainer(ShardRouter shardRouter,
+                               JdbcTemplate jdbcTemplate,
+                               PartitionBounds partitionBounds,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.partitioning.premake-months:2}") int premakeMonths,
+                               @Value("${app.partitioning.premake-item-ranges:2}") int premakeItemRanges,
+                               @Value("${app.partitioning.retention-months:0}") int retentionMonths) {
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitionBounds = partitionBounds;
+        this.premakeMonths = Math.max(0, premakeMonths);
+        this.premakeItemRanges = Math.max(0, premakeItemRanges);
+        this.retentionMonths = retentionMonths;
+        this.created = meterRegistry.counter("db.partitions", "action", "created");
+        this.dropped = meterRegistry.counter("db.partitions", "action", "dropped");
+    }
+
+    @Scheduled(fixedDelayString = "${app.partitioning.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        YearMonth current = YearMonth.now();
+        shardRouter.forEachShard(shard -> {
+            for (String table : TABLES) {
+                try {
+                    maintain(shard, table, current);
+                } catch (DataAccessException e) {
+                    log.warn("Partition maintenance of {} on shard {} failed: {}", table, shard, e.getMessage());
+                }
+            }
+            // after orders, so that the ranges of the months dropped just now go in the same run
+            try {
+                maintainOrderItems(shard);
+            } catch (DataAccessException e) {
+                log.warn("Partition maintenance of {} on shard {} failed: {}", ORDER_ITEMS, shard, e.getMessage());
+            }
+        });
+    }
+
+    private void maintain(int shard, String table, YearMonth current) {
+        if (!isPartitioned(shard, table)) {
+            return;
+        }
+        List<MonthTable> existing = monthTables(table);
+
+        for (int ahead = 0; ahead <= premakeMonths; ahead++) {
+            YearMonth month = current.plusMonths(ahead);
+            if (existing.stream().noneMatch(t -> t.table().attached() && t.month().equals(month))) {
+                String partition = jdbcTemplate.queryForObject(CREATE_SQL, String.class, table, month.atDay(1));
+                created.increment();
+                log.info("Created partition {} on shard {}", partition, shard);
+            }
+        }
+
+        YearMonth oldestKept = retentionMonths > 0 ? current.minusMonths(retentionMonths) : null;
+        NavigableMap<Long, LocalDateTime> smallestIds = new TreeMap<>();
+        for (MonthTable month : existing) {
+            if (oldestKept != null && month.month().isBefore(oldestKept)) {
+                drop(table, month.table());
+                log.info("Dropped partition {} on shard {}, older than {} months",
+                        month.table().name(), shard, retentionMonths);
+            } else if (month.table().attached()) {
+                Long smallestId = jdbcTemplate.queryForObject(
+                        "select min(id) from " + quote(month.table().name()), Long.class);
+                if (smallestId != null) {
+                    smallestIds.put(smallestId, month.month().atDay(1).atStartOfDay());
+                }
+            }
+        }
+        partitionBounds.update(table, shard, smallestIds);
+    }
+
+    private void maintainOrderItems(int shard) {
+        if (!isPartitioned(shard, ORDER_ITEMS)) {
+            return;
+        }
+        for (String partition : jdbcTemplate.queryForList(CREATE_ITEM_RANGES_SQL, String.class, premakeItemRanges)) {
+            created.increment();
+            log.info("Created partition {} on shard {}", partition, shard);
+        }
+
+        if (retentionMonths <= 0) {
+            return;
+        }
+        // ranges are contiguous, so a range whose successor starts at or below the oldest order left holds
+        // only items of dropped orders
+        long oldestOrderId = jdbcTemplate.queryForObject(OLDEST_ORDER_SQL, Long.class);
+        List<ItemRangeTable> ranges = itemRangeTables();
+        for (int i = 0; i + 1 < ranges.size(); i++) {
+            if (ranges.get(i + 1).firstOrderId() <= oldestOrderId) {
+                drop(ORDER_ITEMS, ranges.get(i).table());
+                log.info("Dropped partition {} on shard {}, its orders are gone", ranges.get(i).table().name(), shard);
+            }
+        }
+    }
+
+    private boolean isPartitioned(int shard, String table) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(PARTITIONED_SQL, Boolean.class, table))) {
+            log.debug("Table {} on shard {} is not partitioned, skipping", table, shard);
+            return false;
+        }
+        return true;
+    }
+
+    private void drop(String table, PartitionTable expired) {
+        String partition = quote(expired.name());
+        if (expired.attached()) {
+            // CONCURRENTLY cannot run inside a transaction block, so these go through auto-commit
+            jdbcTemplate.execute("alter table " + quote(table) + " detach partition " + partition
+                    + (expired.detachPending() ? " finalize" : " concurrently"));
+        }
+        jdbcTemplate.execute("drop table " + partition);
+        dropped.increment();
+    }
+
+    private List<MonthTable> monthTables(String table) {
+        return partitionTables("^" + table + "_y[0-9]{4}m[0-9]{2}$").stream().map(partition -> {
+            Matcher matcher = MONTH.matcher(partition.name());
+            matcher.find();
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            return new MonthTable(partition, month);
+        }).toList();
+    }
+
+    private List<ItemRangeTable> itemRangeTables() {
+        return partitionTables("^" + ORDER_ITEMS + "_o[0-9]+$").stream().map(partition -> {
+            Matcher matcher = ITEM_RANGE.matcher(partition.name());
+            matcher.find();
+            return new ItemRangeTable(partition, Long.parseLong(matcher.group(1)));
+        }).sorted(Comparator.comparingLong(ItemRangeTable::firstOrderId)).toList();
+    }
+
+    private List<PartitionTable> partitionTables(String namePattern) {
+        return jdbcTemplate.query(PARTITION_TABLES_SQL, (row, rowNum) -> new PartitionTable(row.getString("relname"),
+                row.getBoolean("relispartition"), row.getBoolean("detach_pending")), namePattern);
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,388 @@
+package ru.itmo.ordermanagement.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.itmo.ordermanagement.dto.TopProductResponse;
+import ru.itmo.ordermanagement.dto.TopProductsResponse;
+import ru.itmo.ordermanagement.model.entity.OrderItem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Approximate top products per seller over a sliding window, fed by new orders.
+ * <p>
+ * The window is {@code app.analytics.top-products.buckets} consecutive buckets of
+ * {@code bucket-minutes} each. Every bucket is a Space-Saving summary of at most
+ * {@code counters} products weighted by quantity, so memory per seller is fixed no matter how many
+ * distinct products are sold. A query merges the live buckets; each result carries an error bound:
+ * the true quantity lies within {@code quantity ± error}.
+ * <p>
+ * State is kept in memory per instance, each seeing only the orders it committed, and written to
+ * {@code seller_top_product_snapshots} under the instance's id every
+ * {@code snapshot-interval-ms}; the run also refreshes {@code taken_at} of all of the instance's rows.
+ * Rows of an instance that has not done so for three intervals, or that shut down, are taken over by
+ * the next instance to start or snapshot: deleted, merged into its own windows and written under its
+ * id. Summaries of the same bucket merge like Space-Saving summaries do, so the error bound still
+ * holds, and no instance's counts are merged twice.
+ */
+@Component
+@Slf4j
+public class ProductHeavyHitters {
+
+    private static final String SNAPSHOT_SQL = "insert into seller_top_product_snapshots "
+            + "(seller_id, instance_id, payload, taken_at) values (?, ?, ?, now()) "
+            + "on conflict (seller_id, instance_id) do update set payload = excluded.payload, taken_at = now()";
+
+    private static final String TOUCH_SQL =
+            "update seller_top_product_snapshots set taken_at = now() where instance_id = ?";
+
+    /** Deletes and returns the rows of every other instance whose newest snapshot is older than the bound. */
+    private static final String TAKE_OVER_SQL = "delete from seller_top_product_snapshots where instance_id in ("
+            + "select instance_id from seller_top_product_snapshots where instance_id <> ? group by instance_id "
+            + "having max(taken_at) < now() - make_interval(secs => ?)) returning seller_id, instance_id, payload";
+
+    /** Marks the rows as left behind, so that they are taken over without waiting out the staleness bound. */
+    private static final String RELEASE_SQL =
+            "update seller_top_product_snapshots set taken_at = '-infinity' where instance_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int bucketCount;
+    private final long bucketMillis;
+    private final int counters;
+    private final double staleSeconds;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Cache<Long, SellerWindow> sellers;
+
+    public ProductHeavyHitters(JdbcTemplate jdbcTemplate,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.analytics.top-products.buckets:24}") int bucketCount,
+                               @Value("${app.analytics.top-products.bucket-minutes:60}") long bucketMinutes,
+                               @Value("${app.analytics.top-products.counters:64}") int counters,
+                               @Value("${app.analytics.top-products.max-sellers:10000}") long maxSellers,
+                               @Value("${app.analytics.top-products.snapshot-interval-ms:60000}") long snapshotIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.bucketCount = Math.max(1, bucketCount);
+        this.bucketMillis = TimeUnit.MINUTES.toMillis(Math.max(1, bucketMinutes));
+        this.counters = Math.max(1, counters);
+        this.staleSeconds = 3 * snapshotIntervalMs / 1000.0;
+        this.sellers = Caffeine.newBuilder().maximumSize(maxSellers).build();
+        Gauge.builder("analytics.top-products.sellers", sellers, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    /**
+     * Counts the order's items once the current transaction commits.
+     */
+    public void recordAfterCommit(Long sellerId, List<OrderItem> items) {
+        List<ItemCount> counts = items.stream()
+                .map(item -> new ItemCount(item.getProductName(), item.getQuantity()))
+                .toList();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(sellerId, counts);
+            }
+        });
+    }
+
+    public TopProductsResponse topProducts(Long sellerId, int limit) {
+        SellerWindow window = sellers.getIfPresent(sellerId);
+        List<TopProductResponse> products = window == null
+                ? List.of()
+                : window.top(currentEpoch(), limit);
+        return TopProductsResponse.builder()
+                .sellerId(sellerId)
+                .windowMinutes(TimeUnit.MILLISECONDS.toMinutes(bucketMillis * bucketCount))
+                .products(products)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.top-products.snapshot-interval-ms:60000}",
+            initialDelayString = "${app.analytics.top-products.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        takeOver();
+        jdbcTemplate.update(TOUCH_SQL, instanceId);
+        writeDirty();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        int restored = takeOver();
+        if (restored > 0) {
+            writeDirty();
+        }
+        log.info("Top products restored from {} snapshots", restored);
+    }
+
+    /**
+     * Writes what is not snapshotted yet and leaves the rows to the next instance right away.
+     */
+    @PreDestroy
+    public void leave() {
+        try {
+            writeDirty();
+            jdbcTemplate.update(RELEASE_SQL, instanceId);
+        } catch (DataAccessException e) {
+            log.warn("Could not release top products snapshots of instance {}: {}", instanceId, e.getMessage());
+        }
+    }
+
+    private void writeDirty() {
+        int written = 0;
+        for (Map.Entry<Long, SellerWindow> entry : sellers.asMap().entrySet()) {
+            WindowState state = entry.getValue().takeIfDirty();
+            if (state == null) {
+                continue;
+            }
+            try {
+                jdbcTemplate.update(SNAPSHOT_SQL, entry.getKey(), instanceId, objectMapper.writeValueAsString(state));
+                written++;
+            } catch (JsonProcessingException e) {
+                log.warn("Top products of seller #{} not snapshotted: {}", entry.getKey(), e.getMessage());
+            }
+        }
+        if (written > 0) {
+            log.debug("Top products snapshotted for {} sellers", written);
+        }
+    }
+
+    /**
+     * Merges the snapshots of instances gone stale into this instance's windows and returns their number.
+     * The windows are left dirty, so that they are written under this instance's id next.
+     */
+    private int takeOver() {
+        long oldestLiveEpoch = currentEpoch() - bucketCount + 1;
+        List<Integer> taken = jdbcTemplate.query(TAKE_OVER_SQL, (row, rowNum) -> {
+            long sellerId = row.getLong("seller_id");
+            try {
+                WindowState state = objectMapper.readValue(row.getString("payload"), WindowState.class);
+                sellers.get(sellerId, id -> new SellerWindow()).merge(state, oldestLiveEpoch);
+            } catch (JsonProcessingException e) {
+                log.warn("Dropping unreadable top products snapshot of seller #{} from instance {}: {}",
+                        sellerId, row.getString("instance_id"), e.getMessage());
+            }
+            return 1;
+        }, instanceId, staleSeconds);
+        if (!taken.isEmpty()) {
+            log.info("Took over {} top products snapshots of stale instances", taken.size());
+        }
+        return taken.size();
+    }
+
+    private void record(Long sellerId, List<ItemCount> counts) {
+        SellerWindow window = sellers.get(sellerId, id -> new SellerWindow());
+        long epoch = currentEpoch();
+        for (ItemCount count : counts) {
+            window.add(epoch, count.productName(), count.quantity());
+        }
+    }
+
+    private long currentEpoch() {
+        return System.currentTimeMillis() / bucketMillis;
+    }
+
+    private record ItemCount(String productName, int quantity) {
+    }
+
+    private record CounterState(String product, long count, long error) {
+    }
+
+    private record BucketState(long epoch, List<CounterState> counters) {
+    }
+
+    private record WindowState(List<BucketState> buckets) {
+    }
+
+    /**
+     * Ring of per-bucket summaries for one seller; all access is synchronized on the window.
+     */
+    private final class SellerWindow {
+
+        private final SpaceSaving[] buckets = new SpaceSaving[bucketCount];
+        private boolean dirty;
+
+        synchronized void add(long epoch, String product, long quantity) {
+            int slot = (int) (epoch % bucketCount);
+            if (buckets[slot] == null || buckets[slot].epoch != epoch) {
+                buckets[slot] = new SpaceSaving(epoch);
+            }
+            buckets[slot].add(product, quantity);
+            dirty = true;
+        }
+
+        synchronized List<TopProductResponse> top(long currentEpoch, int limit) {
+            Map<String, long[]> merged = new HashMap<>();
+            List<SpaceSaving> live = new ArrayList<>(bucketCount);
+            for (SpaceSaving bucket : buckets) {
+                if (bucket != null && bucket.epoch > currentEpoch - bucketCount) {
+                    live.add(bucket);
+                    bucket.counters.forEach((product, counter) -> {
+                        long[] total = merged.computeIfAbsent(product, p -> new long[2]);
+                        total[0] += counter.count;
+                        total[1] += counter.error;
+                    });
+                }
+            }
+            // a product missing from a full bucket may still have sold up to that bucket's minimum there
+            for (SpaceSaving bucket : live) {
+                if (bucket.counters.size() == counters) {
+                    long min = bucket.minCount();
+                    merged.forEach((product, total) -> {
+                        if (!bucket.counters.containsKey(product)) {
+                            total[1] += min;
+                        }
+                    });
+                }
+            }
+            return merged.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[0]).reversed())
+                    .limit(limit)
+                    .map(e -> TopProductResponse.builder()
+                            .productName(e.getKey())
+                            .quantity(e.getValue()[0])
+                            .error(e.getValue()[1])
+                            .build())
+                    .toList();
+        }
+
+        synchronized WindowState takeIfDirty() {
+            if (!dirty) {
+                return null;
+            }
+            dirty = false;
+            List<BucketState> states = new ArrayList<>(bucketCount);
+            for (SpaceSaving bucket : buckets) {
+                if (bucket != null) {
+                    List<CounterState> counterStates = new ArrayList<>(bucket.counters.size());
+                    bucket.counters.forEach((product, counter) ->
+                            counterStates.add(new CounterState(product, counter.count, counter.error)));
+                    states.add(new BucketState(bucket.epoch, counterStates));
+                }
+            }
+            return new WindowState(states);
+        }
+
+        synchronized void merge(WindowState state, long oldestLiveEpoch) {
+            for (BucketState bucketState : state.buckets()) {
+                if (bucketState.epoch() < oldestLiveEpoch) {
+                    continue;
+                }
+                int slot = (int) (bucketState.epoch() % bucketCount);
+                SpaceSaving bucket = buckets[slot];
+                if (bucket == null || bucket.epoch < bucketState.epoch()) {
+                    bucket = new SpaceSaving(bucketState.epoch());
+                    buckets[slot] = bucket;
+                } else if (bucket.epoch > bucketState.epoch()) {
+                    continue;
+                }
+                bucket.merge(bucketState.counters());
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Space-Saving summary (Metwally et al.): when all counters are taken, a new product replaces
+     * the one with the smallest count and inherits that count as its error.
+     */
+    private final class SpaceSaving {
+
+        private final long epoch;
+        private final Map<String, Counter> counters = new HashMap<>();
+
+        SpaceSaving(long epoch) {
+            this.epoch = epoch;
+        }
+
+        void add(String product, long quantity) {
+            Counter counter = counters.get(product);
+            if (counter != null) {
+                counter.count += quantity;
+                return;
+            }
+            if (counters.size() < ProductHeavyHitters.this.counters) {
+                counters.put(product, new Counter(quantity, 0));
+                return;
+            }
+            Map.Entry<String, Counter> min = null;
+            for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+                if (min == null || entry.getValue().count < min.getValue().count) {
+                    min = entry;
+                }
+            }
+            counters.remove(min.getKey());
+            long floor = min.getValue().count;
+            counters.put(product, new Counter(floor + quantity, floor));
+        }
+
+        long minCount() {
+            long min = Long.MAX_VALUE;
+            for (Counter counter : counters.values()) {
+                min = Math.min(min, counter.count);
+            }
+            return min;
+        }
+
+        /**
+         * Adds another summary of the same bucket (Agarwal et al., mergeable summaries): a product missing
+         * from a full summary counts that summary's minimum there, as count and as error, and only the
+         * largest counters are kept.
+         */
+        void merge(List<CounterState> other) {
+            int capacity = ProductHeavyHitters.this.counters;
+            long ownMin = counters.size() >= capacity ? minCount() : 0;
+            long otherMin = other.size() >= capacity
+                    ? other.stream().mapToLong(CounterState::count).min().orElse(0)
+                    : 0;
+            Map<String, Counter> merged = new HashMap<>();
+            for (CounterState counter : other) {
+                Counter own = counters.get(counter.product());
+                merged.put(counter.product(), own != null
+                        ? new Counter(own.count + counter.count(), own.error + counter.error())
+                        : new Counter(ownMin + counter.count(), ownMin + counter.error()));
+            }
+            counters.forEach((product, own) -> merged.putIfAbsent(product,
+                    new Counter(own.count + otherMin, own.error + otherMin)));
+
+            counters.clear();
+            merged.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, Counter> e) -> e.getValue().count).reversed())
+                    .limit(capacity)
+                    .forEach(e -> counters.put(e.getKey(), e.getValue()));
+        }
+    }
+
+    private static final class Counter {
+
+        private long count;
+        private final long error;
+
+        Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ru.itmo.ordermanagement.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.itmo.ordermanagement.config.ShardRouter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies customers, sellers and couriers from the home shard to every other shard with the same
+ * ids, so that orders on any shard can reference and join them. Only the home copy is ever updated
+ * afterwards: courier availability and location are read from the home shard alone. Copies are made
+ * right after each insert commits and in full on startup, which repairs anything missed. Each copy
+ * runs in its own transaction, so it never reuses the connection of the transaction that inserted the row.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceDataReplicator {
+
+    private enum Table {
+        CUSTOMERS("customers", List.of("id", "name", "email", "phone", "created_at")),
+        SELLERS("sellers", List.of("id", "name", "address", "latitude", "longitude", "created_at")),
+        COURIERS("couriers", List.of("id", "name", "phone", "latitude", "longitude", "available", "created_at"));
+
+        private final String select;
+        private final String upsert;
+
+        Table(String name, List<String> columns) {
+            String columnList = String.join(", ", columns);
+            this.select = "select " + columnList + " from " + name;
+            this.upsert = "insert into " + name + " (" + columnList + ") values ("
+                    + String.join(", ", Collections.nCopies(columns.size(), "?")) + ") on conflict (id) do nothing";
+        }
+    }
+
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+
+    public void replicateCustomer(Long customerId) {
+        replicateAfterCommit(Table.CUSTOMERS, customerId);
+    }
+
+    public void replicateSeller(Long sellerId) {
+        replicateAfterCommit(Table.SELLERS, sellerId);
+    }
+
+    public void replicateCourier(Long courierId) {
+        replicateAfterCommit(Table.COURIERS, courierId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (shardRouter.shardCount() == 1) {
+            return;
+        }
+        for (Table table : Table.values()) {
+            List<Object[]> rows = readFromHome(table.select);
+            copyToOtherShards(table, rows);
+            log.info("Reference table {} copied to {} shards: {} rows",
+                    table, shardRouter.shardCount() - 1, rows.size());
+        }
+    }
+
+    private void replicateAfterCommit(Table table, Long id) {
+        if (shardRouter.shardCount() == 1) {
+            return;
+        }
+        Runnable replicate = () -> copyToOtherShards(table, readFromHome(table.select + " where id = ?", id));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            replicate.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                replicate.run();
+            }
+        });
+    }
+
+    private List<Object[]> readFromHome(String sql, Object... args) {
+        return shardRouter.inTransaction(ShardRouter.HOME_SHARD, true, () -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Map<String, Object> row : jdbcTemplate.queryForList(sql, args)) {
+                rows.add(row.values().toArray());
+            }
+            return rows;
+        });
+    }
+
+    private void copyToOtherShards(Table table, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            if (shard != ShardRouter.HOME_SHARD) {
+                shardRouter.inTransaction(shard, false, () -> jdbcTemplate.batchUpdate(table.upsert, rows));
+            }
+        }
+    }
+}
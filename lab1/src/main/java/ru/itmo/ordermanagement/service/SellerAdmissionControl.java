@@ -0,0 +1,232 @@
+package ru.itmo.ordermanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.itmo.ordermanagement.config.ShardRouter;
+import ru.itmo.ordermanagement.exception.AdmissionRejectedException;
+import ru.itmo.ordermanagement.model.enums.OrderStatus;
+import ru.itmo.ordermanagement.repository.OrderRepository;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory admission control for new orders, checked before {@code createOrder} touches the
+ * database.
+ * <p>
+ * Each seller has a token bucket ({@code app.admission.orders-per-second}, burst
+ * {@code app.admission.burst}) and a cap on orders still waiting in {@code IN_PROCESSING}
+ * ({@code app.admission.max-pending-per-seller}). Pending counts are kept per instance: a slot is
+ * reserved atomically before the token bucket is asked, given back if the order is rate limited, its
+ * transaction rolls back or once the order leaves {@code IN_PROCESSING}, and periodically reset from
+ * the database, which also accounts for orders created by other instances. The reset keeps the slots
+ * of creates whose transaction is still open, since the database does not see them yet.
+ */
+@Component
+@Slf4j
+public class SellerAdmissionControl {
+
+    private final OrderRepository orderRepository;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final double ordersPerNano;
+    private final double burst;
+    private final int maxPending;
+    private final long pendingRetryAfterSeconds;
+    private final Cache<Long, TokenBucket> buckets;
+    private final ConcurrentHashMap<Long, PendingSlots> pending = new ConcurrentHashMap<>();
+    private final Counter accepted;
+    private final Counter rateLimited;
+    private final Counter pendingCapped;
+
+    public SellerAdmissionControl(OrderRepository orderRepository,
+                                  ShardRouter shardRouter,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.admission.enabled:true}") boolean enabled,
+                                  @Value("${app.admission.orders-per-second:5}") double ordersPerSecond,
+                                  @Value("${app.admission.burst:20}") int burst,
+                                  @Value("${app.admission.max-pending-per-seller:100}") int maxPending,
+                                  @Value("${app.admission.pending-retry-after-seconds:30}") long pendingRetryAfterSeconds) {
+        this.orderRepository = orderRepository;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.ordersPerNano = Math.max(ordersPerSecond, 0.001) / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.maxPending = maxPending;
+        this.pendingRetryAfterSeconds = pendingRetryAfterSeconds;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.accepted = meterRegistry.counter("order.admission", "result", "accepted");
+        this.rateLimited = meterRegistry.counter("order.admission", "result", "rate_limited");
+        this.pendingCapped = meterRegistry.counter("order.admission", "result", "pending_cap");
+    }
+
+    /**
+     * Admits a new order for the seller or throws {@link AdmissionRejectedException}. Must be
+     * called inside the transaction that creates the order, so the pending slot is returned if
+     * that transaction rolls back.
+     */
+    public void admit(Long sellerId) {
+        if (!enabled) {
+            return;
+        }
+        PendingSlots slots = pending.computeIfAbsent(sellerId, id -> new PendingSlots());
+        if (!slots.tryReserve(maxPending)) {
+            pendingCapped.increment();
+            throw new AdmissionRejectedException(String.format(
+                    "Seller #%d has too many unreviewed orders, retry later", sellerId), pendingRetryAfterSeconds);
+        }
+
+        long waitNanos = buckets.get(sellerId, id -> new TokenBucket(burst, System.nanoTime()))
+                .tryTake(burst, ordersPerNano, System.nanoTime());
+        if (waitNanos > 0) {
+            slots.cancel();
+            rateLimited.increment();
+            throw new AdmissionRejectedException(String.format(
+                    "Too many orders for seller #%d, retry later", sellerId),
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+
+        accepted.increment();
+        returnOnRollback(slots);
+    }
+
+    /**
+     * Takes a pending slot for an order admitted earlier, without the admission checks; returned like
+     * the slot taken by {@link #admit} if the current transaction rolls back.
+     */
+    public void holdPendingSlot(Long sellerId) {
+        if (!enabled) {
+            return;
+        }
+        PendingSlots slots = pending.computeIfAbsent(sellerId, id -> new PendingSlots());
+        slots.reserve();
+        returnOnRollback(slots);
+    }
+
+    /**
+     * Returns the seller's pending slot once the current transaction moves an order out of
+     * {@code IN_PROCESSING} and commits.
+     */
+    public void releaseAfterCommit(Long sellerId) {
+        if (!enabled) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                PendingSlots slots = pending.get(sellerId);
+                if (slots != null) {
+                    slots.release();
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.admission.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Integer> counts = new HashMap<>();
+        for (OrderRepository.SellerOrderCount row : shardRouter.queryAllShards(
+                () -> orderRepository.countBySellerAndStatus(OrderStatus.IN_PROCESSING))) {
+            counts.put(row.getSellerId(), row.getOrders().intValue());
+        }
+        counts.keySet().forEach(sellerId -> pending.computeIfAbsent(sellerId, id -> new PendingSlots()));
+        pending.forEach((sellerId, slots) -> slots.reset(counts.getOrDefault(sellerId, 0)));
+        log.debug("Admission pending counts reconciled for {} sellers", counts.size());
+    }
+
+    /**
+     * Settles a slot reserved in the current transaction when it completes: kept on commit, given
+     * back on rollback.
+     */
+    private void returnOnRollback(PendingSlots slots) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                slots.inFlight.decrementAndGet();
+                if (status != STATUS_COMMITTED) {
+                    slots.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * A seller's pending orders as seen by this instance; {@code inFlight} of them are held by creates
+     * whose transaction has not completed yet.
+     */
+    private static final class PendingSlots {
+
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        boolean tryReserve(int max) {
+            if (count.getAndUpdate(current -> current < max ? current + 1 : current) >= max) {
+                return false;
+            }
+            inFlight.incrementAndGet();
+            return true;
+        }
+
+        void reserve() {
+            count.incrementAndGet();
+            inFlight.incrementAndGet();
+        }
+
+        /**
+         * Gives back a slot reserved by {@link #tryReserve} before any transaction could commit it.
+         */
+        void cancel() {
+            inFlight.decrementAndGet();
+            release();
+        }
+
+        void release() {
+            count.updateAndGet(current -> Math.max(0, current - 1));
+        }
+
+        void reset(int committed) {
+            count.set(committed + inFlight.get());
+        }
+    }
+
+    private static final class TokenBucket {
+
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise nanoseconds until one becomes available
+         */
+        synchronized long tryTake(double capacity, double perNano, long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * perNano);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / perNano);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package ru.itmo.ordermanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import ru.itmo.ordermanagement.config.ShardRouter;
+import ru.itmo.ordermanagement.dto.SellerBoardOrder;
+import ru.itmo.ordermanagement.dto.SellerBoardResponse;
+import ru.itmo.ordermanagement.event.OrderEventConsumer;
+import ru.itmo.ordermanagement.event.OrderStatusChanged;
+import ru.itmo.ordermanagement.exception.ResourceNotFoundException;
+import ru.itmo.ordermanagement.model.enums.OrderStatus;
+import ru.itmo.ordermanagement.repository.OrderRepository;
+import ru.itmo.ordermanagement.repository.SellerRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves {@code GET /api/sellers/{id}/board}: the seller's orders waiting for review and the ones in
+ * progress, from a per-seller inbox kept in memory, so that the seller UI does not reload the whole
+ * order history to spot new orders.
+ * <p>
+ * A seller's inbox is loaded from the database on the first poll and then kept current from the
+ * {@link ru.itmo.ordermanagement.event.OrderEventBus}; transitions of an order are applied by
+ * {@code version}, so a load racing with them cannot bring back an older state. A poll that already
+ * has the current board version is parked as a {@link DeferredResult}, holding neither a request
+ * thread nor a connection, and is answered when the board changes or after {@code waitMs}. Only
+ * transitions committed by this instance reach the bus, so an inbox is reloaded once it is older than
+ * {@code app.seller-board.refresh-ms}. Inboxes nobody polled for {@code app.seller-board.idle-minutes}
+ * are dropped.
+ */
+@Component
+@Slf4j
+public class SellerOrderBoard implements OrderEventConsumer {
+
+    static final Set<OrderStatus> ON_BOARD = EnumSet.of(OrderStatus.IN_PROCESSING, OrderStatus.COOKING,
+            OrderStatus.ASSEMBLING, OrderStatus.SEARCHING_COURIER, OrderStatus.AWAITING_COURIER, OrderStatus.DELAYED);
+
+    private final OrderRepository orderRepository;
+    private final SellerRepository sellerRepository;
+    private final ShardRouter shardRouter;
+    private final long maxWaitMs;
+    private final long refreshMs;
+    private final Cache<Long, Board> boards;
+    /**
+     * Board versions come from one counter seeded with the clock, so a version seen before a restart
+     * or on another seller's board never matches the current one.
+     */
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final AtomicInteger parked = new AtomicInteger();
+    /**
+     * Boards changed in the current batch of events; touched only by the event bus thread.
+     */
+    private final Set<Board> changed = new HashSet<>();
+
+    public SellerOrderBoard(OrderRepository orderRepository,
+                            SellerRepository sellerRepository,
+                            ShardRouter shardRouter,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.seller-board.max-wait-ms:30000}") long maxWaitMs,
+                            @Value("${app.seller-board.refresh-ms:60000}") long refreshMs,
+                            @Value("${app.seller-board.idle-minutes:10}") long idleMinutes,
+                            @Value("${app.seller-board.max-sellers:10000}") long maxSellers) {
+        this.orderRepository = orderRepository;
+        this.sellerRepository = sellerRepository;
+        this.shardRouter = shardRouter;
+        this.maxWaitMs = maxWaitMs;
+        this.refreshMs = refreshMs;
+        this.boards = Caffeine.newBuilder()
+                .maximumSize(maxSellers)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+        meterRegistry.gauge("seller.board.sellers", boards, Cache::estimatedSize);
+        meterRegistry.gauge("seller.board.parked", parked);
+    }
+
+    public DeferredResult<SellerBoardResponse> poll(Long sellerId, long version, long waitMs) {
+        long wait = Math.max(0, Math.min(waitMs, maxWaitMs));
+        Board board = boards.get(sellerId, id -> {
+            if (!sellerRepository.existsById(id)) {
+                throw new ResourceNotFoundException("Seller not found: " + id);
+            }
+            return new Board(id);
+        });
+        refreshIfStale(board);
+
+        SellerBoardResponse current = board.snapshot();
+        if (current.getVersion() != version || wait == 0) {
+            DeferredResult<SellerBoardResponse> result = new DeferredResult<>();
+            result.setResult(current);
+            return result;
+        }
+
+        DeferredResult<SellerBoardResponse> result = new DeferredResult<>(wait);
+        result.onTimeout(() -> result.setResult(board.snapshot()));
+        result.onCompletion(() -> {
+            if (board.unpark(result)) {
+                parked.decrementAndGet();
+            }
+        });
+        if (board.park(version, result)) {
+            parked.incrementAndGet();
+        } else {
+            result.setResult(board.snapshot());
+        }
+        return result;
+    }
+
+    @Override
+    public String consumerName() {
+        return "seller-board";
+    }
+
+    @Override
+    public void onEvent(OrderStatusChanged event, long sequence, boolean endOfBatch) {
+        Board board = boards.policy().getIfPresentQuietly(event.getSellerId());
+        if (board != null && board.apply(event.getOrderId(), event.getStatus(), event.getVersion())) {
+            changed.add(board);
+        }
+        if (endOfBatch && !changed.isEmpty()) {
+            changed.forEach(Board::wakeUp);
+            changed.clear();
+        }
+    }
+
+    private void refreshIfStale(Board board) {
+        if (!board.isStale()) {
+            return;
+        }
+        synchronized (board.loadLock) {
+            if (!board.isStale()) {
+                return;
+            }
+            board.beginLoad();
+            try {
+                List<OrderRepository.BoardEntry> entries = shardRouter.inTransaction(
+                        shardRouter.shardOfSeller(board.sellerId), true,
+                        () -> orderRepository.findBoardEntriesBySellerId(board.sellerId, ON_BOARD));
+                if (board.finishLoad(entries)) {
+                    board.wakeUp();
+                }
+            } catch (RuntimeException e) {
+                board.abortLoad();
+                throw e;
+            }
+        }
+    }
+
+    private record Entry(OrderStatus status, long version) {
+    }
+
+    /**
+     * One seller's inbox. {@link #orders} holds the orders on the board; while a load runs it also
+     * keeps finished orders, so that the load result cannot put them back.
+     */
+    private final class Board {
+
+        private final Long sellerId;
+        private final Object loadLock = new Object();
+        private final Map<Long, Entry> orders = new HashMap<>();
+        private final List<DeferredResult<SellerBoardResponse>> waiters = new ArrayList<>();
+        private long version = versions.incrementAndGet();
+        private volatile long loadedAtNanos;
+        private volatile boolean loaded;
+        /**
+         * Orders changed by events since the running load started, {@code null} when none runs.
+         */
+        private Set<Long> touchedDuringLoad;
+
+        private Board(Long sellerId) {
+            this.sellerId = sellerId;
+        }
+
+        boolean isStale() {
+            return !loaded || System.nanoTime() - loadedAtNanos > refreshMs * 1_000_000;
+        }
+
+        synchronized boolean apply(long orderId, OrderStatus status, long orderVersion) {
+            Entry existing = orders.get(orderId);
+            if (existing != null && existing.version() >= orderVersion) {
+                return false;
+            }
+            if (touchedDuringLoad != null) {
+                touchedDuringLoad.add(orderId);
+                orders.put(orderId, new Entry(status, orderVersion));
+                return false;
+            }
+            if (ON_BOARD.contains(status)) {
+                orders.put(orderId, new Entry(status, orderVersion));
+            } else if (orders.remove(orderId) == null) {
+                return false;
+            }
+            version = versions.incrementAndGet();
+            return true;
+        }
+
+        synchronized void beginLoad() {
+            touchedDuringLoad = new HashSet<>();
+        }
+
+        synchronized void abortLoad() {
+            touchedDuringLoad = null;
+            orders.values().removeIf(entry -> !ON_BOARD.contains(entry.status()));
+        }
+
+        /**
+         * Merges the loaded orders: an order changed by an event during the load keeps the newer of
+         * both states, any other order takes the loaded state, and orders missing from the load are
+         * gone unless an event brought them in meanwhile.
+         *
+         * @return whether the board changed
+         */
+        synchronized boolean finishLoad(List<OrderRepository.BoardEntry> entries) {
+            Map<Long, Entry> merged = new HashMap<>();
+            for (OrderRepository.BoardEntry loadedEntry : entries) {
+                merged.put(loadedEntry.getOrderId(), new Entry(loadedEntry.getStatus(),
+                        loadedEntry.getVersion() != null ? loadedEntry.getVersion() : 0));
+            }
+            for (Long orderId : touchedDuringLoad) {
+                Entry fromEvent = orders.get(orderId);
+                Entry fromLoad = merged.get(orderId);
+                if (fromLoad == null || fromLoad.version() < fromEvent.version()) {
+                    merged.put(orderId, fromEvent);
+                }
+            }
+            merged.values().removeIf(entry -> !ON_BOARD.contains(entry.status()));
+            touchedDuringLoad = null;
+            loaded = true;
+            loadedAtNanos = System.nanoTime();
+
+            orders.values().removeIf(entry -> !ON_BOARD.contains(entry.status()));
+            boolean boardChanged = !merged.equals(orders);
+            orders.clear();
+            orders.putAll(merged);
+            if (boardChanged) {
+                version = versions.incrementAndGet();
+            }
+            return boardChanged;
+        }
+
+        /**
+         * Parks {@code waiter} until the board moves past {@code seenVersion}; returns {@code false}
+         * if it already has.
+         */
+        synchronized boolean park(long seenVersion, DeferredResult<SellerBoardResponse> waiter) {
+            if (version != seenVersion) {
+                return false;
+            }
+            waiters.add(waiter);
+            return true;
+        }
+
+        synchronized boolean unpark(DeferredResult<SellerBoardResponse> waiter) {
+            return waiters.remove(waiter);
+        }
+
+        void wakeUp() {
+            List<DeferredResult<SellerBoardResponse>> woken;
+            SellerBoardResponse snapshot;
+            synchronized (this) {
+                if (waiters.isEmpty()) {
+                    return;
+                }
+                woken = new ArrayList<>(waiters);
+                snapshot = snapshot();
+            }
+            woken.forEach(waiter -> waiter.setResult(snapshot));
+        }
+
+        synchronized SellerBoardResponse snapshot() {
+            List<Long> pending = new ArrayList<>();
+            List<SellerBoardOrder> active = new ArrayList<>();
+            orders.entrySet().stream()
+                    .filter(order -> ON_BOARD.contains(order.getValue().status()))
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(order -> {
+                        if (order.getValue().status() == OrderStatus.IN_PROCESSING) {
+                            pending.add(order.getKey());
+                        } else {
+                            active.add(SellerBoardOrder.builder()
+                                    .orderId(order.getKey())
+                                    .status(order.getValue().status())
+                                    .build());
+                        }
+                    });
+            return SellerBoardResponse.builder()
+                    .sellerId(sellerId)
+                    .version(version)
+                    .pendingOrderIds(pending)
+                    .activeOrders(active)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package ru.itmo.ordermanagement.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.IntCountsHistogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.itmo.ordermanagement.dto.StageLatencyResponse;
+import ru.itmo.ordermanagement.event.OrderEventConsumer;
+import ru.itmo.ordermanagement.event.OrderStatusChanged;
+import ru.itmo.ordermanagement.exception.BadRequestException;
+import ru.itmo.ordermanagement.model.enums.OrderStage;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling latency distributions of the {@link OrderStage}s, globally and per seller, fed by the
+ * order event bus.
+ * <p>
+ * Each distribution is a ring of {@code app.analytics.stage-latency.intervals} HdrHistograms,
+ * one per {@code interval-minutes}, with millisecond values up to a day at two significant
+ * digits. Queries merge the live intervals. The number of sellers tracked is derived from
+ * {@code memory-budget-mb} and the worst-case footprint of one seller; the least recently
+ * updated sellers are dropped beyond that.
+ */
+@Component
+@Slf4j
+public class StageLatencyAnalytics implements OrderEventConsumer {
+
+    private static final long HIGHEST_TRACKABLE_MS = TimeUnit.DAYS.toMillis(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final long intervalMillis;
+    private final int intervals;
+    private final StageHistograms global;
+    private final Cache<Long, StageHistograms> sellers;
+
+    public StageLatencyAnalytics(MeterRegistry meterRegistry,
+                                 @Value("${app.analytics.stage-latency.interval-minutes:15}") long intervalMinutes,
+                                 @Value("${app.analytics.stage-latency.intervals:4}") int intervals,
+                                 @Value("${app.analytics.stage-latency.memory-budget-mb:64}") long memoryBudgetMb) {
+        this.intervalMillis = TimeUnit.MINUTES.toMillis(Math.max(1, intervalMinutes));
+        this.intervals = Math.max(1, intervals);
+        this.global = new StageHistograms();
+
+        long histogramBytes = newHistogram().getEstimatedFootprintInBytes();
+        long sellerBytes = histogramBytes * this.intervals * OrderStage.values().length;
+        long maxSellers = Math.max(1, memoryBudgetMb * 1024 * 1024 / sellerBytes - 1);
+        this.sellers = Caffeine.newBuilder().maximumSize(maxSellers).build();
+        Gauge.builder("analytics.stage-latency.sellers", sellers, Cache::estimatedSize).register(meterRegistry);
+        log.info("Stage latency analytics: {} KB per seller, up to {} sellers within {} MB",
+                sellerBytes / 1024, maxSellers, memoryBudgetMb);
+    }
+
+    @Override
+    public String consumerName() {
+        return "stage-latency";
+    }
+
+    @Override
+    public void onEvent(OrderStatusChanged event, long sequence, boolean endOfBatch) {
+        OrderStage stage = OrderStage.endedBy(event.getStatus());
+        if (stage == null || event.getStageStartedAtMillis() == 0) {
+            return;
+        }
+        long latencyMs = Math.min(HIGHEST_TRACKABLE_MS,
+                Math.max(0, event.getCommittedAtMillis() - event.getStageStartedAtMillis()));
+        long epoch = event.getCommittedAtMillis() / intervalMillis;
+        global.record(stage, epoch, latencyMs);
+        sellers.get(event.getSellerId(), id -> new StageHistograms()).record(stage, epoch, latencyMs);
+    }
+
+    /**
+     * @param sellerId   seller to report on, or {@code null} for all sellers
+     * @param stage      stage to report on, or {@code null} for every stage
+     * @param percentiles percentiles in (0, 100]
+     */
+    public List<StageLatencyResponse> query(Long sellerId, OrderStage stage, List<Double> percentiles) {
+        for (Double percentile : percentiles) {
+            if (percentile == null || percentile <= 0 || percentile > 100) {
+                throw new BadRequestException("Percentiles must be in (0, 100]: " + percentile);
+            }
+        }
+        StageHistograms histograms = sellerId == null ? global : sellers.getIfPresent(sellerId);
+        long currentEpoch = System.currentTimeMillis() / intervalMillis;
+        List<StageLatencyResponse> result = new ArrayList<>();
+        for (OrderStage s : stage != null ? List.of(stage) : List.of(OrderStage.values())) {
+            AbstractHistogram merged = histograms != null ? histograms.merged(s, currentEpoch) : newHistogram();
+            Map<String, Long> values = new LinkedHashMap<>();
+            for (Double percentile : percentiles) {
+                values.put("p" + BigDecimal.valueOf(percentile).stripTrailingZeros().toPlainString(),
+                        merged.getTotalCount() > 0 ? merged.getValueAtPercentile(percentile) : 0);
+            }
+            result.add(StageLatencyResponse.builder()
+                    .stage(s)
+                    .sellerId(sellerId)
+                    .windowMinutes(TimeUnit.MILLISECONDS.toMinutes(intervalMillis * intervals))
+                    .count(merged.getTotalCount())
+                    .minMs(merged.getTotalCount() > 0 ? merged.getMinValue() : 0)
+                    .maxMs(merged.getMaxValue())
+                    .meanMs(merged.getTotalCount() > 0 ? merged.getMean() : 0)
+                    .percentilesMs(values)
+                    .build());
+        }
+        return result;
+    }
+
+    private static AbstractHistogram newHistogram() {
+        return new IntCountsHistogram(HIGHEST_TRACKABLE_MS, SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Interval rings of one seller (or of all sellers), one ring per stage. Histograms are
+     * allocated on first use and reused when their slot comes round again.
+     */
+    private final class StageHistograms {
+
+        private final AbstractHistogram[][] rings = new AbstractHistogram[OrderStage.values().length][intervals];
+        private final long[][] epochs = new long[OrderStage.values().length][intervals];
+
+        synchronized void record(OrderStage stage, long epoch, long latencyMs) {
+            int slot = (int) (epoch % intervals);
+            AbstractHistogram histogram = rings[stage.ordinal()][slot];
+            if (histogram == null) {
+                histogram = newHistogram();
+                rings[stage.ordinal()][slot] = histogram;
+                epochs[stage.ordinal()][slot] = epoch;
+            } else if (epochs[stage.ordinal()][slot] != epoch) {
+                histogram.reset();
+                epochs[stage.ordinal()][slot] = epoch;
+            }
+            histogram.recordValue(latencyMs);
+        }
+
+        synchronized AbstractHistogram merged(OrderStage stage, long currentEpoch) {
+            AbstractHistogram merged = newHistogram();
+            for (int slot = 0; slot < intervals; slot++) {
+                AbstractHistogram histogram = rings[stage.ordinal()][slot];
+                if (histogram != null && epochs[stage.ordinal()][slot] > currentEpoch - intervals) {
+                    merged.add(histogram);
+                }
+            }
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.itmo.ordermanagement.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import ru.itmo.ordermanagement.config.ShardRouter;
+import ru.itmo.ordermanagement.dto.OrderChangesResponse;
+import ru.itmo.ordermanagement.dto.OrderResponse;
+import ru.itmo.ordermanagement.model.enums.RecipientType;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optionally runs the hot read paths (order queries, {@link OrderService#toResponse}, notification
+ * rendering and JSON serialization) before the application reports itself ready.
+ * <p>
+ * Application runners finish before {@code ApplicationReadyEvent}, so the readiness probe stays
+ * {@code REFUSING_TRAFFIC} until the warm-up is done. Only read-only calls are made; the snapshot
+ * cache is the one thing left populated.
+ */
+@Component
+@Slf4j
+public class StartupWarmUp implements ApplicationRunner {
+
+    private final OrderService orderService;
+    private final NotificationService notificationService;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int iterations;
+    private final int sampleSize;
+    private final long maxDurationMs;
+
+    public StartupWarmUp(OrderService orderService,
+                         NotificationService notificationService,
+                         ObjectMapper objectMapper,
+                         @Value("${app.warm-up.enabled:false}") boolean enabled,
+                         @Value("${app.warm-up.iterations:200}") int iterations,
+                         @Value("${app.warm-up.sample-size:50}") int sampleSize,
+                         @Value("${app.warm-up.max-duration-ms:30000}") long maxDurationMs) {
+        this.orderService = orderService;
+        this.notificationService = notificationService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.sampleSize = Math.max(1, sampleSize);
+        this.maxDurationMs = maxDurationMs;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(maxDurationMs);
+        int rounds = 0;
+        long bytes = 0;
+        try {
+            while (rounds < iterations && System.nanoTime() < deadline) {
+                bytes += round();
+                rounds++;
+            }
+        } catch (RuntimeException | JsonProcessingException e) {
+            log.warn("Warm-up stopped after {} rounds: {}", rounds, e.getMessage());
+        }
+        log.info("Warm-up finished: {} rounds, {} KB serialized in {} ms",
+                rounds, bytes / 1024, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private long round() throws JsonProcessingException {
+        OrderChangesResponse page = orderService.getOrderChanges(ShardRouter.HOME_SHARD, 0, sampleSize);
+        long bytes = objectMapper.writeValueAsBytes(page).length;
+        if (page.getOrders().isEmpty()) {
+            return bytes;
+        }
+        for (OrderResponse order : page.getOrders()) {
+            bytes += objectMapper.writeValueAsBytes(orderService.getOrder(order.getId())).length;
+        }
+        OrderResponse first = page.getOrders().get(0);
+        bytes += objectMapper.writeValueAsBytes(notificationService.getNotifications(
+                RecipientType.CUSTOMER, first.getCustomerId(), Locale.getDefault())).length;
+        return bytes;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.itmo.ordermanagement.service;
+
+/**
+ * One of {@code count} hash partitions of orders by {@code seller_id}, leased to a single instance
+ * for timer sweeps.
+ */
+public record SweepShard(int index, int count) {
+
+    public static final SweepShard ALL = new SweepShard(0, 1);
+}
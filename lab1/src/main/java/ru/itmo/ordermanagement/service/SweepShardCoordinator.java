@@ -0,0 +1,149 @@
+package ru.itmo.ordermanagement.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.itmo.ordermanagement.config.ShardRouter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Splits timer sweeps across application instances with shard leases.
+ * <p>
+ * Orders are partitioned into {@code app.scheduler.shards} shards by {@code seller_id}. Every run
+ * an instance refreshes its heartbeat in {@code sweep_instances} and reads the instances that
+ * heartbeated within {@code app.scheduler.sharding.instance-ttl-ms}; ordered by id, instance
+ * {@code k} of {@code n} leases the shards with {@code index mod n = k} and keeps them run after
+ * run, so every shard is swept by one instance per period and the work grows with the number of
+ * instances. An instance that starts or stops heartbeating changes the membership, and the shards
+ * move with the next run of every instance. Until all instances have seen the change a shard may
+ * be skipped or swept twice for one run; a session advisory lock on the shard keeps two instances
+ * from sweeping it at the same time.
+ * <p>
+ * The lock is {@code pg_try_advisory_lock(space, shard)}, where the space is a fixed number per
+ * sweep: {@code 1001} for {@link #SELLER_TIMEOUT} and {@code 1002} for {@link #COURIER_TIMEOUT}.
+ * Instances of different builds must agree on it, so a new sweep gets the next free number and
+ * an existing one never changes its own.
+ */
+@Component
+@Slf4j
+public class SweepShardCoordinator {
+
+    public static final String SELLER_TIMEOUT = "seller-timeout";
+    public static final String COURIER_TIMEOUT = "courier-timeout";
+
+    /** Advisory lock space of each sweep, see the class comment. */
+    private static final Map<String, Integer> LOCK_SPACES = Map.of(
+            SELLER_TIMEOUT, 1001,
+            COURIER_TIMEOUT, 1002);
+
+    private static final String HEARTBEAT_SQL = "insert into sweep_instances (instance_id, heartbeat_at) "
+            + "values (?, now()) on conflict (instance_id) do update set heartbeat_at = now()";
+
+    private static final String LIVE_INSTANCES_SQL = "select instance_id from sweep_instances "
+            + "where heartbeat_at > now() - make_interval(secs => ?) order by instance_id";
+
+    private static final String EXPIRED_INSTANCES_SQL =
+            "delete from sweep_instances where heartbeat_at < now() - make_interval(secs => ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int shards;
+    private final double instanceTtlSeconds;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public SweepShardCoordinator(JdbcTemplate jdbcTemplate,
+                                 ShardRouter shardRouter,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.scheduler.sharding.enabled:true}") boolean enabled,
+                                 @Value("${app.scheduler.sharding.shards:16}") int shards,
+                                 @Value("${app.scheduler.sharding.instance-ttl-ms:180000}") long instanceTtlMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.shards = Math.max(1, shards);
+        this.instanceTtlSeconds = instanceTtlMs / 1000.0;
+    }
+
+    public void runSharded(String sweep, Consumer<SweepShard> work) {
+        Integer lockSpace = LOCK_SPACES.get(sweep);
+        if (lockSpace == null) {
+            throw new IllegalArgumentException("Unknown sweep: " + sweep);
+        }
+        if (!enabled) {
+            work.accept(SweepShard.ALL);
+            return;
+        }
+        jdbcTemplate.update(HEARTBEAT_SQL, instanceId);
+        jdbcTemplate.update(EXPIRED_INSTANCES_SQL, instanceTtlSeconds * 2);
+        List<String> instances = jdbcTemplate.queryForList(LIVE_INSTANCES_SQL, String.class, instanceTtlSeconds);
+        int position = Math.max(0, instances.indexOf(instanceId));
+        int members = Math.max(1, instances.size());
+
+        int leased = 0;
+        int owned = 0;
+        for (int index = position; index < shards; index += members) {
+            leased++;
+            SweepShard shard = new SweepShard(index, shards);
+            Boolean processed = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+                if (!advisoryLock(connection, "select pg_try_advisory_lock(?, ?)", lockSpace, shard.index())) {
+                    return false;
+                }
+                try {
+                    work.accept(shard);
+                } finally {
+                    advisoryLock(connection, "select pg_advisory_unlock(?, ?)", lockSpace, shard.index());
+                }
+                return true;
+            });
+            if (Boolean.TRUE.equals(processed)) {
+                owned++;
+            }
+        }
+        meterRegistry.counter("order.sweep.shards", "sweep", sweep, "result", "processed").increment(owned);
+        meterRegistry.counter("order.sweep.shards", "sweep", sweep, "result", "skipped").increment(shards - owned);
+        log.debug("Sweep {}: instance {} of {}, leased {} and processed {} of {} shards",
+                sweep, position + 1, members, leased, owned, shards);
+    }
+
+    /**
+     * Gives up the leases right away instead of after {@code instance-ttl-ms}.
+     */
+    @PreDestroy
+    public void leave() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            shardRouter.forEachShard(database ->
+                    jdbcTemplate.update("delete from sweep_instances where instance_id = ?", instanceId));
+        } catch (DataAccessException e) {
+            log.warn("Could not remove sweep instance {}: {}", instanceId, e.getMessage());
+        }
+    }
+
+    private boolean advisoryLock(Connection connection, String sql, int lockSpace, int shard) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, lockSpace);
+            statement.setInt(2, shard);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package ru.itmo.ordermanagement.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.itmo.ordermanagement.config.ShardRouter;
+import ru.itmo.ordermanagement.service.ColumnarPartWriter.Column;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Incremental export of finished orders ({@code IN_DELIVERY}, {@code CANCELLED}) and their items
+ * for offline analytics, so that reports do not query the live tables.
+ * <p>
+ * Every run exports, per shard, the finished orders whose {@code change_seq} moved past the shard's
+ * watermark, reading them through a database cursor of {@code app.export.fetch-size} rows. Parts
+ * are written as {@code <dir>/<table>/date=<day the order finished>/part-<shard>-<watermark>/}, see
+ * {@link ColumnarPartWriter}; rows are read ordered by that day, so only one part is open at a time.
+ * The watermark in {@code <dir>/_watermark} moves only after all parts of the run are in place; a run
+ * that died halfway is redone under the same part names. Like the change feed, a run stops below the
+ * oldest transaction still running (see {@code schema.sql}), so a change committed later cannot land
+ * behind the watermark. An order changed again after its export appears again in a later part: the
+ * row with the highest {@code change_seq} wins.
+ * <p>
+ * Runs only with {@code app.export.enabled}, checked on every run like the warm-up's flag
+ * ({@link StartupWarmUp}): a bean condition would be fixed at build time by Spring AOT.
+ */
+@Component
+@Slf4j
+public class TerminalOrderExporter {
+
+    private static final String FINISHED_AT = "coalesce(o.cancelled_at, o.courier_arrived_at, o.updated_at)";
+    private static final String TERMINAL = "o.status in ('IN_DELIVERY', 'CANCELLED')";
+
+    private static final String UPPER_BOUND_SQL = "select max(change_seq) from orders where change_seq > ? "
+            + "and change_seq < (pg_snapshot_xmin(pg_current_snapshot())::text::bigint << 20)";
+
+    private static final String ORDERS_SQL = "select o.id, o.customer_id, o.seller_id, o.courier_id, o.status, "
+            + "o.total_price, o.created_at, " + FINISHED_AT + " as finished_at, o.cancel_reason, o.change_seq "
+            + "from orders o where o.change_seq > ? and o.change_seq <= ? and " + TERMINAL
+            + " order by cast(" + FINISHED_AT + " as date), o.change_seq";
+
+    private static final String ITEMS_SQL = "select i.id, i.order_id, i.product_name, i.quantity, i.price, "
+            + FINISHED_AT + " as finished_at, o.change_seq "
+            + "from order_items i join orders o on o.id = i.order_id "
+            + "where o.change_seq > ? and o.change_seq <= ? and " + TERMINAL
+            + " order by cast(" + FINISHED_AT + " as date), o.change_seq, i.id";
+
+    private static final List<Column> ORDER_COLUMNS = List.of(
+            new Column("id", "bigint"),
+            new Column("customer_id", "bigint"),
+            new Column("seller_id", "bigint"),
+            new Column("courier_id", "bigint"),
+            new Column("status", "varchar"),
+            new Column("total_price", "numeric(12,2)"),
+            new Column("created_at", "timestamp"),
+            new Column("finished_at", "timestamp"),
+            new Column("cancel_reason", "varchar"),
+            new Column("change_seq", "bigint"));
+
+    private static final List<Column> ITEM_COLUMNS = List.of(
+            new Column("id", "bigint"),
+            new Column("order_id", "bigint"),
+            new Column("product_name", "varchar"),
+            new Column("quantity", "int"),
+            new Column("price", "numeric(12,2)"),
+            new Column("change_seq", "bigint"));
+
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate cursorTemplate;
+    private final boolean enabled;
+    private final Path directory;
+    private final Timer runTimer;
+    private final Counter exportedOrders;
+    private final Counter exportedItems;
+
+    public TerminalOrderExporter(DataSource dataSource,
+                                 ShardRouter shardRouter,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.export.enabled:false}") boolean enabled,
+                                 @Value("${app.export.dir:export}") String directory,
+                                 @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        this.shardRouter = shardRouter;
+        this.cursorTemplate = new JdbcTemplate(dataSource);
+        this.cursorTemplate.setFetchSize(Math.max(1, fetchSize));
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.runTimer = meterRegistry.timer("export.run");
+        this.exportedOrders = meterRegistry.counter("export.rows", "table", "orders");
+        this.exportedItems = meterRegistry.counter("export.rows", "table", "order_items");
+    }
+
+    @Scheduled(fixedDelayString = "${app.export.interval-ms:300000}",
+            initialDelayString = "${app.export.interval-ms:300000}")
+    public void export() {
+        if (!enabled) {
+            return;
+        }
+        runTimer.record(() -> {
+            try {
+                Properties watermarks = readWatermarks();
+                for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                    String key = "shard." + shard;
+                    long from = Long.parseLong(watermarks.getProperty(key, "0"));
+                    long to = exportShard(shard, from);
+                    if (to > from) {
+                        watermarks.setProperty(key, Long.toString(to));
+                        writeWatermarks(watermarks);
+                    }
+                }
+            } catch (RuntimeException | IOException e) {
+                log.warn("Order export failed, will retry from the last watermark: {}", e.toString());
+            }
+        });
+    }
+
+    /**
+     * Exports one shard's orders finished after {@code from} and returns the new watermark.
+     */
+    private long exportShard(int shard, long from) {
+        // on the primary: the bound below compares change_seq with its transaction ids
+        return shardRouter.inTransaction(shard, false, () -> {
+            Long upper = cursorTemplate.queryForObject(UPPER_BOUND_SQL, Long.class, from);
+            if (upper == null || upper <= from) {
+                return from;
+            }
+            String part = "part-" + shard + "-" + from;
+            long orders = exportTable("orders", part, ORDER_COLUMNS, ORDERS_SQL, from, upper, row -> new Object[]{
+                    row.getLong("id"), row.getLong("customer_id"), row.getLong("seller_id"),
+                    row.getObject("courier_id", Long.class), row.getString("status"), row.getBigDecimal("total_price"),
+                    toLocalDateTime(row.getTimestamp("created_at")), toLocalDateTime(row.getTimestamp("finished_at")),
+                    row.getString("cancel_reason"), row.getLong("change_seq")});
+            long items = exportTable("order_items", part, ITEM_COLUMNS, ITEMS_SQL, from, upper, row -> new Object[]{
+                    row.getLong("id"), row.getLong("order_id"), row.getString("product_name"),
+                    row.getInt("quantity"), row.getBigDecimal("price"), row.getLong("change_seq")});
+            exportedOrders.increment(orders);
+            exportedItems.increment(items);
+            log.info("Exported shard {} changes ({}, {}]: {} finished orders, {} items",
+                    shard, from, upper, orders, items);
+            return upper;
+        });
+    }
+
+    /**
+     * Writes one part per day. Rows come ordered by day, so only the current day's writer is open; it
+     * is committed when the day changes. Parts committed before a failure are replaced when the run
+     * is redone.
+     */
+    private long exportTable(String table, String part, List<Column> columns, String sql, long from, long upper,
+                             RowMapper mapper) {
+        DayPart current = new DayPart();
+        try {
+            cursorTemplate.query(sql, row -> {
+                LocalDate day = row.getTimestamp("finished_at").toLocalDateTime().toLocalDate();
+                if (!day.equals(current.day)) {
+                    current.commit();
+                    current.day = day;
+                    current.writer = new ColumnarPartWriter(
+                            directory.resolve(table).resolve("date=" + day).resolve(part), columns);
+                }
+                current.writer.append(mapper.map(row));
+            }, from, upper);
+            current.commit();
+            return current.rows;
+        } catch (RuntimeException e) {
+            if (current.writer != null) {
+                current.writer.abort();
+            }
+            throw e;
+        }
+    }
+
+    private Properties readWatermarks() throws IOException {
+        Properties watermarks = new Properties();
+        Path file = directory.resolve("_watermark");
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                watermarks.load(in);
+            }
+        }
+        return watermarks;
+    }
+
+    private void writeWatermarks(Properties watermarks) throws IOException {
+        Files.createDirectories(directory);
+        Path temporary = directory.resolve("_watermark.tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            watermarks.store(out, "Last exported orders.change_seq per shard");
+        }
+        Files.move(temporary, directory.resolve("_watermark"),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private static final class DayPart {
+
+        private LocalDate day;
+        private ColumnarPartWriter writer;
+        private long rows;
+
+        void commit() {
+            if (writer != null) {
+                writer.commit();
+                rows += writer.rows();
+                writer = null;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowMapper {
+        Object[] map(ResultSet row) throws SQLException;
+    }
+}
@@ -0,0 +1,34 @@
+-- Converts order_items of a database created by an earlier schema.sql into the table partitioned by ranges of
+-- order_id of the current one. partitioning-migration.sql ends with it; a database whose orders are already
+-- partitioned runs it on its own, once, with the application stopped:
+--   psql -d order_management -f src/main/resources/order-items-partitioning-migration.sql
+-- Ids and order_items_id_seq are kept; rows are copied into the partitions of their order's range.
+
+\set ON_ERROR_STOP on
+
+BEGIN;
+
+LOCK TABLE order_items IN ACCESS EXCLUSIVE MODE;
+
+ALTER TABLE order_items DROP CONSTRAINT IF EXISTS order_items_order_id_fkey;
+ALTER SEQUENCE order_items_id_seq OWNED BY NONE;
+ALTER TABLE order_items ALTER COLUMN id DROP DEFAULT;
+
+ALTER TABLE order_items RENAME TO order_items_unpartitioned;
+ALTER TABLE order_items_unpartitioned RENAME CONSTRAINT order_items_pkey TO order_items_unpartitioned_pkey;
+DROP INDEX IF EXISTS idx_order_items_order;
+
+\ir schema.sql
+
+SELECT count(*) AS created
+FROM create_order_items_partitions(2, (SELECT min(order_id) FROM order_items_unpartitioned));
+
+INSERT INTO order_items (id, order_id, product_name, quantity, price)
+SELECT id, order_id, product_name, quantity, price
+FROM order_items_unpartitioned;
+
+DROP TABLE order_items_unpartitioned;
+
+COMMIT;
+
+ANALYZE order_items;
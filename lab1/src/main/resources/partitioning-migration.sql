@@ -0,0 +1,68 @@
+-- Converts orders and notifications of a database created by an earlier schema.sql into the monthly
+-- partitioned tables of the current one, then order_items (order-items-partitioning-migration.sql). Run once
+-- per database, with the application stopped:
+--   psql -d order_management -f src/main/resources/partitioning-migration.sql
+-- Ids, change_seq values and the id sequences are kept; rows are copied into the partitions of their month.
+
+\set ON_ERROR_STOP on
+
+BEGIN;
+
+LOCK TABLE orders, notifications IN ACCESS EXCLUSIVE MODE;
+
+-- first bring the old tables up to the current columns (the upgrade block of schema.sql), the copy below
+-- expects all of them
+\ir schema.sql
+
+ALTER TABLE order_items DROP CONSTRAINT IF EXISTS order_items_order_id_fkey;
+ALTER TABLE notifications DROP CONSTRAINT IF EXISTS notifications_order_id_fkey;
+ALTER TABLE order_idempotency_keys DROP CONSTRAINT IF EXISTS order_idempotency_keys_order_id_fkey;
+ALTER TABLE orders DROP CONSTRAINT IF EXISTS orders_customer_id_fkey, DROP CONSTRAINT IF EXISTS orders_seller_id_fkey,
+    DROP CONSTRAINT IF EXISTS orders_courier_id_fkey;
+
+ALTER SEQUENCE orders_id_seq OWNED BY NONE;
+ALTER SEQUENCE notifications_id_seq OWNED BY NONE;
+ALTER TABLE orders ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE notifications ALTER COLUMN id DROP DEFAULT;
+
+ALTER TABLE orders RENAME TO orders_unpartitioned;
+ALTER TABLE notifications RENAME TO notifications_unpartitioned;
+ALTER TABLE orders_unpartitioned RENAME CONSTRAINT orders_pkey TO orders_unpartitioned_pkey;
+ALTER TABLE notifications_unpartitioned RENAME CONSTRAINT notifications_pkey TO notifications_unpartitioned_pkey;
+DROP INDEX IF EXISTS idx_orders_status, idx_orders_customer, idx_orders_seller, idx_orders_courier,
+    idx_orders_change_seq, idx_notifications_recipient;
+DROP TRIGGER IF EXISTS trg_orders_change_seq ON orders_unpartitioned;
+
+\ir schema.sql
+
+SELECT create_month_partition(parent, month::date)
+FROM (VALUES ('orders', (SELECT min(created_at) FROM orders_unpartitioned)),
+             ('notifications', (SELECT min(created_at) FROM notifications_unpartitioned))) AS t(parent, since),
+     generate_series(date_trunc('month', coalesce(since, NOW())), date_trunc('month', NOW()), INTERVAL '1 month') AS month;
+
+-- keep the change_seq the rows already have, so change feed cursors and export watermarks stay valid
+ALTER TABLE orders DISABLE TRIGGER trg_orders_change_seq;
+
+INSERT INTO orders (id, customer_id, seller_id, courier_id, status, version, total_price, created_at, updated_at,
+                    seller_notified_at, reviewed_at, assembled_at, courier_search_started_at, courier_notified_at,
+                    courier_assigned_at, courier_arrived_at, cancelled_at, cancel_reason, change_seq)
+SELECT id, customer_id, seller_id, courier_id, status, version, total_price, created_at, updated_at,
+       seller_notified_at, reviewed_at, assembled_at, courier_search_started_at, courier_notified_at,
+       courier_assigned_at, courier_arrived_at, cancelled_at, cancel_reason, change_seq
+FROM orders_unpartitioned;
+
+ALTER TABLE orders ENABLE TRIGGER trg_orders_change_seq;
+
+INSERT INTO notifications (id, recipient_type, recipient_id, order_id, template_code, params, message, is_read,
+                           created_at)
+SELECT id, recipient_type, recipient_id, order_id, template_code, params, message, is_read, created_at
+FROM notifications_unpartitioned;
+
+DROP TABLE orders_unpartitioned, notifications_unpartitioned;
+
+COMMIT;
+
+ANALYZE orders;
+ANALYZE notifications;
+
+\ir order-items-partitioning-migration.sql
@@ -10,6 +10,8 @@ CREATE TABLE IF NOT EXISTS sellers (
     id              BIGSERIAL PRIMARY KEY,
     name            VARCHAR(255) NOT NULL,
     address         VARCHAR(500),
+    latitude        DOUBLE PRECISION,
+    longitude       DOUBLE PRECISION,
     created_at      TIMESTAMP NOT NULL DEFAULT NOW()
 );
 
@@ -17,48 +19,206 @@ CREATE TABLE IF NOT EXISTS couriers (
     id              BIGSERIAL PRIMARY KEY,
     name            VARCHAR(255) NOT NULL,
     phone           VARCHAR(50),
+    latitude        DOUBLE PRECISION,
+    longitude       DOUBLE PRECISION,
     available       BOOLEAN NOT NULL DEFAULT TRUE,
     created_at      TIMESTAMP NOT NULL DEFAULT NOW()
 );
 
+-- orders and notifications are partitioned by month of created_at, see create_month_partition below, and
+-- order_items by ranges of order_id, see create_order_items_partitions. The partition key has to be part of
+-- every unique constraint, so their primary keys include it and other tables cannot declare foreign keys to them.
+CREATE SEQUENCE IF NOT EXISTS orders_id_seq;
+
 CREATE TABLE IF NOT EXISTS orders (
-    id              BIGSERIAL PRIMARY KEY,
+    id              BIGINT NOT NULL DEFAULT nextval('orders_id_seq'),
     customer_id     BIGINT NOT NULL REFERENCES customers(id),
     seller_id       BIGINT NOT NULL REFERENCES sellers(id),
     courier_id      BIGINT REFERENCES couriers(id),
     status          VARCHAR(50) NOT NULL DEFAULT 'CREATED',
+    version         BIGINT NOT NULL DEFAULT 0,
     total_price     NUMERIC(12, 2) NOT NULL DEFAULT 0,
     created_at      TIMESTAMP NOT NULL DEFAULT NOW(),
     updated_at      TIMESTAMP NOT NULL DEFAULT NOW(),
     seller_notified_at      TIMESTAMP,
+    reviewed_at             TIMESTAMP,
+    assembled_at            TIMESTAMP,
+    courier_search_started_at TIMESTAMP,
     courier_notified_at     TIMESTAMP,
     courier_assigned_at     TIMESTAMP,
     courier_arrived_at      TIMESTAMP,
     cancelled_at            TIMESTAMP,
-    cancel_reason           VARCHAR(500)
-);
+    cancel_reason           VARCHAR(500),
+    change_seq              BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE orders_id_seq OWNED BY orders.id;
+
+CREATE SEQUENCE IF NOT EXISTS order_items_id_seq;
 
 CREATE TABLE IF NOT EXISTS order_items (
-    id              BIGSERIAL PRIMARY KEY,
-    order_id        BIGINT NOT NULL REFERENCES orders(id) ON DELETE CASCADE,
+    id              BIGINT NOT NULL DEFAULT nextval('order_items_id_seq'),
+    order_id        BIGINT NOT NULL,
     product_name    VARCHAR(255) NOT NULL,
     quantity        INT NOT NULL DEFAULT 1,
-    price           NUMERIC(12, 2) NOT NULL DEFAULT 0
-);
+    price           NUMERIC(12, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (id, order_id)
+) PARTITION BY RANGE (order_id);
+
+ALTER SEQUENCE order_items_id_seq OWNED BY order_items.id;
+
+CREATE SEQUENCE IF NOT EXISTS notifications_id_seq;
 
 CREATE TABLE IF NOT EXISTS notifications (
-    id              BIGSERIAL PRIMARY KEY,
+    id              BIGINT NOT NULL DEFAULT nextval('notifications_id_seq'),
     recipient_type  VARCHAR(50) NOT NULL,
     recipient_id    BIGINT NOT NULL,
-    order_id        BIGINT NOT NULL REFERENCES orders(id),
-    message         TEXT NOT NULL,
+    order_id        BIGINT NOT NULL,
+    template_code   VARCHAR(32),
+    params          VARCHAR(500),
+    message         TEXT,
     is_read         BOOLEAN NOT NULL DEFAULT FALSE,
-    created_at      TIMESTAMP NOT NULL DEFAULT NOW()
+    created_at      TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE notifications_id_seq OWNED BY notifications.id;
+
+-- one row per seller and application instance, see ProductHeavyHitters
+CREATE TABLE IF NOT EXISTS seller_top_product_snapshots (
+    seller_id   BIGINT NOT NULL REFERENCES sellers(id),
+    instance_id VARCHAR(64) NOT NULL,
+    payload     TEXT NOT NULL,
+    taken_at    TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (seller_id, instance_id)
 );
 
+-- Columns added after the first version of this schema, for databases created by an earlier schema.sql.
+ALTER TABLE sellers ADD COLUMN IF NOT EXISTS latitude DOUBLE PRECISION,
+    ADD COLUMN IF NOT EXISTS longitude DOUBLE PRECISION;
+ALTER TABLE couriers ADD COLUMN IF NOT EXISTS latitude DOUBLE PRECISION,
+    ADD COLUMN IF NOT EXISTS longitude DOUBLE PRECISION;
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS reviewed_at TIMESTAMP,
+    ADD COLUMN IF NOT EXISTS assembled_at TIMESTAMP,
+    ADD COLUMN IF NOT EXISTS courier_search_started_at TIMESTAMP,
+    ADD COLUMN IF NOT EXISTS change_seq BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE notifications ADD COLUMN IF NOT EXISTS template_code VARCHAR(32),
+    ADD COLUMN IF NOT EXISTS params VARCHAR(500),
+    ALTER COLUMN message DROP NOT NULL;
+
+-- snapshots from before instance_id get an empty one, and are taken over as left behind
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_attribute
+                   WHERE attrelid = 'seller_top_product_snapshots'::regclass AND attname = 'instance_id') THEN
+        ALTER TABLE seller_top_product_snapshots ADD COLUMN instance_id VARCHAR(64) NOT NULL DEFAULT '',
+            DROP CONSTRAINT seller_top_product_snapshots_pkey, ADD PRIMARY KEY (seller_id, instance_id);
+        ALTER TABLE seller_top_product_snapshots ALTER COLUMN instance_id DROP DEFAULT;
+    END IF;
+END;
+$$;
+
+-- rows that predate change_seq; runs before the trigger below exists on such a database, and every
+-- row written through the trigger already has a value
+UPDATE orders SET change_seq = id WHERE change_seq = 0;
+
+-- Application instances sharing the timer sweeps, see SweepShardCoordinator.
+CREATE TABLE IF NOT EXISTS sweep_instances (
+    instance_id     VARCHAR(64) PRIMARY KEY,
+    heartbeat_at    TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS order_idempotency_keys (
+    customer_id     BIGINT NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    VARCHAR(64) NOT NULL,
+    order_id        BIGINT,
+    response        TEXT,
+    created_at      TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (customer_id, idempotency_key)
+);
+
+-- Creates the partition of `parent` for the month of `month` (named <parent>_yYYYYmMM) unless it exists.
+-- The application creates upcoming months itself and detaches expired ones (PartitionMaintainer).
+CREATE OR REPLACE FUNCTION create_month_partition(parent TEXT, month DATE) RETURNS TEXT AS $$
+DECLARE
+    first_day DATE := date_trunc('month', month)::date;
+    partition TEXT := parent || to_char(first_day, '"_y"YYYY"m"MM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                   partition, parent, first_day, (first_day + INTERVAL '1 month')::date);
+    RETURN partition;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_month_partition(parent, (date_trunc('month', NOW()) + make_interval(months => m))::date)
+FROM unnest(ARRAY['orders', 'notifications']) AS parent, generate_series(0, 2) AS m
+WHERE EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = parent::regclass);
+
+-- Creates the partitions of order_items (named order_items_o<first order id>), a million order ids each,
+-- from the range of `since_order_id` (default: the next orders_id_seq value) up to `ahead` ranges past the
+-- next orders_id_seq value, unless they exist, and returns the ones created. The items of an order sit in
+-- one partition, and a range goes as a whole once all of its orders are dropped (PartitionMaintainer).
+-- Does nothing while order_items is not partitioned yet.
+CREATE OR REPLACE FUNCTION create_order_items_partitions(ahead INT, since_order_id BIGINT DEFAULT NULL)
+    RETURNS SETOF TEXT AS $$
+DECLARE
+    range_size CONSTANT BIGINT := 1000000;
+    next_id BIGINT;
+    first_id BIGINT;
+    partition TEXT;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'order_items'::regclass) THEN
+        RETURN;
+    END IF;
+    SELECT last_value + is_called::int INTO next_id FROM orders_id_seq;
+    first_id := (least(coalesce(since_order_id, next_id), next_id) - 1) / range_size * range_size + 1;
+    WHILE first_id <= next_id + ahead * range_size LOOP
+        partition := 'order_items_o' || first_id;
+        IF to_regclass(partition) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF order_items FOR VALUES FROM (%s) TO (%s)',
+                           partition, first_id, first_id + range_size);
+            RETURN NEXT partition;
+        END IF;
+        first_id := first_id + range_size;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_order_items_partitions(2);
+
+-- change_seq orders the change feed and the export watermark: the id of the writing transaction shifted
+-- left by 20 bits, plus the number of the row within that transaction. Every transaction that can still
+-- write a value below pg_snapshot_xmin(pg_current_snapshot()) << 20 has finished, so readers stop there
+-- and a late commit cannot land behind their cursor (a plain sequence value is taken at write time and
+-- commits out of order).
+CREATE OR REPLACE FUNCTION bump_order_change_seq() RETURNS TRIGGER AS $$
+DECLARE
+    row_no INT := coalesce(nullif(current_setting('order_change.row_no', true), ''), '0')::int + 1;
+BEGIN
+    IF row_no >= 1048576 THEN
+        RAISE EXCEPTION 'Too many order changes in one transaction';
+    END IF;
+    PERFORM set_config('order_change.row_no', row_no::text, true);
+    NEW.change_seq := (pg_current_xact_id()::text::bigint << 20) | row_no;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP SEQUENCE IF EXISTS orders_change_seq;
+
+DROP TRIGGER IF EXISTS trg_orders_change_seq ON orders;
+CREATE TRIGGER trg_orders_change_seq
+    BEFORE INSERT OR UPDATE ON orders
+    FOR EACH ROW EXECUTE FUNCTION bump_order_change_seq();
+
 CREATE INDEX IF NOT EXISTS idx_orders_status ON orders(status);
 CREATE INDEX IF NOT EXISTS idx_orders_customer ON orders(customer_id);
 CREATE INDEX IF NOT EXISTS idx_orders_seller ON orders(seller_id);
 CREATE INDEX IF NOT EXISTS idx_orders_courier ON orders(courier_id);
-CREATE INDEX IF NOT EXISTS idx_notifications_recipient ON notifications(recipient_type, recipient_id);
+CREATE INDEX IF NOT EXISTS idx_orders_change_seq ON orders(change_seq);
+CREATE INDEX IF NOT EXISTS idx_notifications_recipient ON notifications(recipient_type, recipient_id, created_at);
 CREATE INDEX IF NOT EXISTS idx_order_items_order ON order_items(order_id);
+CREATE INDEX IF NOT EXISTS idx_order_idempotency_keys_created ON order_idempotency_keys(created_at);
@@ -0,0 +1,351 @@
+package ru.itmo.ordermanagement.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.itmo.ordermanagement.dto.BulkOrderRequest;
+import ru.itmo.ordermanagement.dto.CreateCourierRequest;
+import ru.itmo.ordermanagement.dto.CreateOrderRequest;
+import ru.itmo.ordermanagement.dto.OrderItemDto;
+import ru.itmo.ordermanagement.dto.OrderResponse;
+import ru.itmo.ordermanagement.dto.ReviewOrderRequest;
+import ru.itmo.ordermanagement.exception.InvalidOrderStateException;
+import ru.itmo.ordermanagement.exception.OrderLockTimeoutException;
+import ru.itmo.ordermanagement.model.entity.Customer;
+import ru.itmo.ordermanagement.model.entity.Seller;
+import ru.itmo.ordermanagement.repository.CustomerRepository;
+import ru.itmo.ordermanagement.repository.SellerRepository;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Races conflicting transitions of the same orders: two {@code reviewOrder} against the cancel sweep,
+ * two {@code searchCourier}, {@code courierArrived} against the delay sweep. Then checks in the
+ * database that a courier has at most one active order, that orders only went through valid status
+ * chains and that every transition produced exactly one notification, and logs the conflict rate and
+ * throughput of every race.
+ * <p>
+ * Runs against the PostgreSQL server of {@code application.yml}, in a database of its own
+ * ({@code order_management_stress}) that it creates and brings to {@code schema.sql}: the sweeps run
+ * with zero timeouts and would touch every order they see. Size with {@code -Dstress.orders} and
+ * {@code -Dstress.threads}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "app.admission.enabled=false",
+        "app.timer-check-interval-ms=3600000",
+        "app.notifications.coalesce-window-ms=0",
+        "app.sharding.enabled=false",
+        "app.group-commit.enabled=false"})
+@Slf4j
+class OrderTransitionStressTest {
+
+    private static final String SERVER = "jdbc:postgresql://localhost:5432/";
+    private static final String DATABASE = "order_management_stress";
+    private static final String USER = "postgres";
+    private static final String PASSWORD = "postgres";
+
+    private static final int ORDERS = Integer.getInteger("stress.orders", 200);
+    private static final int THREADS = Integer.getInteger("stress.threads", 16);
+    private static final int SWEEP_WINDOW_DAYS = 7;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CourierService courierService;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private SellerRepository sellerRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    private final ExecutorService pairs = Executors.newFixedThreadPool(THREADS * 2);
+
+    @DynamicPropertySource
+    static void stressDatabase(DynamicPropertyRegistry registry) throws Exception {
+        try (Connection connection = DriverManager.getConnection(SERVER + "postgres", USER, PASSWORD);
+             Statement statement = connection.createStatement()) {
+            try (ResultSet exists = statement.executeQuery(
+                    "select 1 from pg_database where datname = '" + DATABASE + "'")) {
+                if (!exists.next()) {
+                    statement.execute("create database " + DATABASE);
+                }
+            }
+        }
+        String schema = new String(new ClassPathResource("schema.sql").getInputStream().readAllBytes(),
+                StandardCharsets.UTF_8);
+        try (Connection connection = DriverManager.getConnection(SERVER + DATABASE, USER, PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.execute(schema);
+        }
+        registry.add("spring.datasource.url", () -> SERVER + DATABASE);
+    }
+
+    @AfterEach
+    void shutDown() {
+        pool.shutdownNow();
+        pairs.shutdownNow();
+    }
+
+    @Test
+    void concurrentTransitionsKeepInvariants() throws Exception {
+        long run = System.currentTimeMillis();
+        Long customerId = customerRepository.save(Customer.builder().name("Стресс-покупатель " + run).build()).getId();
+        Long sellerId = sellerRepository.save(Seller.builder()
+                .name("Стресс-продавец " + run).address("ул. Гонок, 1").build()).getId();
+        for (int i = 1; i <= ORDERS; i++) {
+            CreateCourierRequest courier = new CreateCourierRequest();
+            courier.setName("Стресс-курьер " + run + "-" + i);
+            courierService.createCourier(courier);
+        }
+
+        Race review = new Race("reviewOrder × 2 против cancelOverdueOrders");
+        review.sweep(() -> orderService.cancelOverdueOrders(0, SWEEP_WINDOW_DAYS, SweepShard.ALL));
+        List<Long> slots = new ArrayList<>();
+        for (long i = 0; i < ORDERS; i++) {
+            slots.add(i);
+        }
+        review.forEach(slots, slot -> {
+            Long orderId = orderService.createOrder(newOrder(customerId, sellerId)).getId();
+            review.pair(() -> orderService.reviewOrder(orderId, accept()),
+                    () -> orderService.reviewOrder(orderId, accept()));
+        });
+        log.info("  accepted by seller: {}, cancelled by timer: {}",
+                count("select count(*) from orders where seller_id = ? and reviewed_at is not null", sellerId),
+                count("select count(*) from orders where seller_id = ? and status = 'CANCELLED'", sellerId));
+
+        List<Long> cooking = ordersInStatus(sellerId, "COOKING");
+        if (!cooking.isEmpty()) {
+            BulkOrderRequest assemble = new BulkOrderRequest();
+            assemble.setOrderIds(cooking);
+            orderService.bulkAssembleOrders(assemble);
+        }
+
+        // half of the assembled orders race two courier searches, the other half the arrival against the delay sweep
+        List<Long> assembling = ordersInStatus(sellerId, "ASSEMBLING");
+        List<Long> search = new ArrayList<>();
+        List<Long> arrive = new ArrayList<>();
+        for (int i = 0; i < assembling.size(); i++) {
+            (i % 2 == 0 ? search : arrive).add(assembling.get(i));
+        }
+
+        Race searchCourier = new Race("searchCourier против searchCourier");
+        searchCourier.forEach(search, orderId -> searchCourier.pair(
+                () -> orderService.searchCourier(orderId), () -> orderService.searchCourier(orderId)));
+
+        Race courierArrived = new Race("courierArrived против markDelayedOrders");
+        courierArrived.sweep(() -> orderService.markDelayedOrders(0, SWEEP_WINDOW_DAYS, SweepShard.ALL));
+        courierArrived.forEach(arrive, orderId -> {
+            OrderResponse searched = orderService.searchCourier(orderId);
+            if (searched.getCourierId() == null) {
+                return;
+            }
+            sleepQuietly(ThreadLocalRandom.current().nextInt(400));
+            courierArrived.attempt(() -> orderService.courierArrived(orderId, searched.getCourierId()));
+        });
+        log.info("  in delivery: {}, after a delay: {}",
+                count("select count(*) from orders where seller_id = ? and status = 'IN_DELIVERY'", sellerId),
+                count("select count(distinct n.order_id) from notifications n join orders o on o.id = n.order_id "
+                        + "where o.seller_id = ? and n.template_code = 'CUSTOMER_STATUS_CHANGED' "
+                        + "and n.params = 'DELAYED' and o.status = 'IN_DELIVERY'", sellerId));
+
+        for (Race race : List.of(review, searchCourier, courierArrived)) {
+            assertThat(race.unexpected).as(race.name + ": unexpected failures").isEmpty();
+        }
+
+        assertNoViolations("a courier has at most one active order", """
+                select 'courier #' || courier_id || ': orders ' || string_agg(id::text, ', ')
+                from orders
+                where status in ('AWAITING_COURIER', 'DELAYED')
+                  and courier_id in (select courier_id from orders where seller_id = ?)
+                group by courier_id having count(*) > 1""", sellerId);
+
+        assertNoViolations("a courier with an active order is not available", """
+                select 'order #' || o.id || ', courier #' || c.id
+                from orders o join couriers c on c.id = o.courier_id
+                where o.seller_id = ? and o.status in ('AWAITING_COURIER', 'DELAYED') and c.available""", sellerId);
+
+        assertNoViolations("only valid status chains, one notification per transition", """
+                with paths as (
+                    select o.id, o.status,
+                           string_agg(n.params, ' → ' order by n.id) as path,
+                           (array_agg(n.params order by n.id desc))[1] as last
+                    from orders o
+                    left join notifications n on n.order_id = o.id
+                        and n.recipient_type = 'CUSTOMER' and n.template_code = 'CUSTOMER_STATUS_CHANGED'
+                    where o.seller_id = ?
+                    group by o.id, o.status)
+                select 'order #' || id || ' (' || status || '): ' || coalesce(path, 'no notifications')
+                from paths
+                where coalesce(path, '') !~ '^IN_PROCESSING( → CANCELLED| → COOKING( → ASSEMBLING( → DELAYED)?( → IN_DELIVERY)?)?)?$'
+                   or last is distinct from case when status in ('SEARCHING_COURIER', 'AWAITING_COURIER')
+                                                 then 'ASSEMBLING' else status end""", sellerId);
+
+        assertNoViolations("one courier notification per assignment", """
+                select 'order #' || o.id || ': courier notifications ' || count(n.id)
+                from orders o
+                left join notifications n on n.order_id = o.id and n.template_code = 'COURIER_NEW_DELIVERY'
+                where o.seller_id = ?
+                group by o.id, o.courier_id
+                having count(n.id) <> case when o.courier_id is null then 0 else 1 end""", sellerId);
+
+        assertNoViolations("a cancelled order was not accepted, an accepted one was not cancelled", """
+                select 'order #' || id || ': ' || status
+                from orders
+                where seller_id = ?
+                  and ((status = 'CANCELLED' and reviewed_at is not null)
+                    or (status <> 'CANCELLED' and cancelled_at is not null))""", sellerId);
+    }
+
+    private static CreateOrderRequest newOrder(Long customerId, Long sellerId) {
+        OrderItemDto item = new OrderItemDto();
+        item.setProductName("Стресс");
+        item.setQuantity(1);
+        item.setPrice(BigDecimal.valueOf(100));
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setCustomerId(customerId);
+        request.setSellerId(sellerId);
+        request.setItems(List.of(item));
+        return request;
+    }
+
+    private static ReviewOrderRequest accept() {
+        ReviewOrderRequest request = new ReviewOrderRequest();
+        request.setCanFulfill(true);
+        return request;
+    }
+
+    private List<Long> ordersInStatus(Long sellerId, String status) {
+        return jdbcTemplate.queryForList("select id from orders where seller_id = ? and status = ? order by id",
+                Long.class, sellerId, status);
+    }
+
+    private long count(String sql, Long sellerId) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, sellerId);
+        return count != null ? count : 0;
+    }
+
+    private void assertNoViolations(String invariant, String sql, Long sellerId) {
+        List<String> violations = jdbcTemplate.queryForList(sql, String.class, sellerId);
+        assertThat(violations).as(invariant).isEmpty();
+        log.info("  OK   {}", invariant);
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One race: counts the raced transitions by outcome; conflicts are the failures the API answers
+     * with 409, anything else is unexpected.
+     */
+    private final class Race {
+
+        private final String name;
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger conflicts = new AtomicInteger();
+        private final Queue<String> unexpected = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean sweeping = new AtomicBoolean();
+        private Thread sweeper;
+
+        Race(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Runs {@code sweep} over and over while the race lasts, as the timer would with zero timeouts.
+         */
+        void sweep(Runnable sweep) {
+            sweeping.set(true);
+            sweeper = new Thread(() -> {
+                while (sweeping.get()) {
+                    try {
+                        sweep.run();
+                    } catch (RuntimeException e) {
+                        unexpected.add("sweep: " + e);
+                    }
+                    sleepQuietly(20);
+                }
+            }, "stress-sweep");
+            sweeper.start();
+        }
+
+        void forEach(List<Long> ids, Consumer<Long> task) throws InterruptedException {
+            long started = System.nanoTime();
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            for (Long id : ids) {
+                tasks.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        task.accept(id);
+                    } catch (RuntimeException e) {
+                        unexpected.add("#" + id + ": " + e);
+                    }
+                }, pool));
+            }
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+            long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            if (sweeper != null) {
+                sweeping.set(false);
+                sweeper.join();
+            }
+
+            int total = succeeded.get() + conflicts.get() + unexpected.size();
+            log.info("--- {} ---", name);
+            log.info("  calls: {}, succeeded: {}, conflicts: {} ({}%), unexpected: {}",
+                    total, succeeded.get(), conflicts.get(), total > 0 ? conflicts.get() * 100 / total : 0,
+                    unexpected.size());
+            log.info("  time: {} ms, throughput: {} calls/s", millis, total * 1000L / millis);
+        }
+
+        /**
+         * Runs both calls at the same time and waits for them.
+         */
+        void pair(Runnable first, Runnable second) {
+            CompletableFuture.allOf(
+                    CompletableFuture.runAsync(() -> attempt(first), pairs),
+                    CompletableFuture.runAsync(() -> attempt(second), pairs)).join();
+        }
+
+        void attempt(Runnable call) {
+            try {
+                call.run();
+                succeeded.incrementAndGet();
+            } catch (InvalidOrderStateException | OrderLockTimeoutException | OptimisticLockingFailureException e) {
+                conflicts.incrementAndGet();
+            } catch (RuntimeException e) {
+                unexpected.add(e.toString());
+            }
+        }
+    }
+}